@@ -0,0 +1,81 @@
+package cpw.mods.fml.common.asm.transformers;
+
+import net.minecraft.launchwrapper.IClassTransformer;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+/**
+ * A transformer working on the tree form of a class.
+ *
+ * Registered on its own it parses and writes the class like any other transformer. Inside a {@link ClassNodeTransformerChain}
+ * consecutive ClassNodeTransformers share one ClassNode, so the class is parsed and written once for all of them, and not at all
+ * when none of them {@link #handles} it.
+ */
+public abstract class ClassNodeTransformer implements IClassTransformer
+{
+    /**
+     * Cheap check made before the class is parsed, the class is only passed to {@link #transform(String, String, ClassNode)} if this
+     * returns true. In a chain this sees the bytes the chain started with, before any of its transformers ran.
+     */
+    public abstract boolean handles(String name, String transformedName, byte[] bytes);
+
+    /**
+     * @return true if the class was changed
+     */
+    public abstract boolean transform(String name, String transformedName, ClassNode classNode);
+
+    /**
+     * The ClassWriter flags needed to write the class after this transformer changed it.
+     */
+    public int getWriterFlags()
+    {
+        return ClassWriter.COMPUTE_MAXS;
+    }
+
+    @Override
+    public byte[] transform(String name, String transformedName, byte[] bytes)
+    {
+        if (bytes == null || !handles(name, transformedName, bytes))
+        {
+            return bytes;
+        }
+        ClassNode classNode = new ClassNode();
+        new ClassReader(bytes).accept(classNode, 0);
+        if (!transform(name, transformedName, classNode))
+        {
+            return bytes;
+        }
+        ClassWriter writer = new ClassWriter(getWriterFlags());
+        classNode.accept(writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * Looks for an ASCII string in the raw class file, for pre-filters. Every class, member and descriptor a class refers to is
+     * stored verbatim in its constant pool, so a class without the string can't refer to it.
+     */
+    protected static boolean containsString(byte[] bytes, String value)
+    {
+        int length = value.length();
+        char first = value.charAt(0);
+        outer:
+        for (int i = 0, max = bytes.length - length; i <= max; i++)
+        {
+            if (bytes[i] != first)
+            {
+                continue;
+            }
+            for (int j = 1; j < length; j++)
+            {
+                if (bytes[i + j] != value.charAt(j))
+                {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,179 @@
+package cpw.mods.fml.common.asm.transformers;
+
+import java.util.List;
+
+import net.minecraft.launchwrapper.IClassTransformer;
+
+import org.apache.logging.log4j.Level;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+import com.google.common.collect.Lists;
+
+import cpw.mods.fml.relauncher.CoreModManager;
+import cpw.mods.fml.relauncher.FMLRelaunchLog;
+
+/**
+ * Runs a list of transformers in order as a single transformer.
+ *
+ * Every run of consecutive {@link ClassNodeTransformer}s parses the class once, lets each of them that {@link ClassNodeTransformer#handles}
+ * the class change the same ClassNode, and writes it once, only if one of them changed it. Other transformers get the bytes as usual,
+ * and so do ClassNodeTransformers overriding {@link IClassTransformer#transform(String, String, byte[])}, such as coremod access
+ * transformer subclasses, since sharing the ClassNode would skip their override.
+ */
+public class ClassNodeTransformerChain implements IClassTransformer
+{
+    private final IClassTransformer[] transformers;
+    // Whether each transformer can share the ClassNode of its neighbours
+    private final boolean[] chained;
+
+    public ClassNodeTransformerChain(List<IClassTransformer> transformers)
+    {
+        this.transformers = transformers.toArray(new IClassTransformer[transformers.size()]);
+        this.chained = new boolean[this.transformers.length];
+        for (int i = 0; i < chained.length; i++)
+        {
+            chained[i] = isChainable(this.transformers[i]);
+        }
+    }
+
+    private static boolean isChainable(IClassTransformer transformer)
+    {
+        if (!(transformer instanceof ClassNodeTransformer))
+        {
+            return false;
+        }
+        try
+        {
+            return transformer.getClass().getMethod("transform", String.class, String.class, byte[].class).getDeclaringClass() == ClassNodeTransformer.class;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Loads the transformers the same way LaunchClassLoader.registerTransformer does, logging and skipping any that fail to load.
+     */
+    protected ClassNodeTransformerChain(String... classNames)
+    {
+        this(load(classNames));
+    }
+
+    private static List<IClassTransformer> load(String[] classNames)
+    {
+        List<IClassTransformer> ret = Lists.newArrayListWithCapacity(classNames.length);
+        for (String name : classNames)
+        {
+            try
+            {
+                ret.add((IClassTransformer)Class.forName(name, true, ClassNodeTransformerChain.class.getClassLoader()).newInstance());
+                FMLRelaunchLog.finer("Registering chained transformer %s", name);
+            }
+            catch (Exception e)
+            {
+                FMLRelaunchLog.log(Level.ERROR, e, "A critical problem occurred registering the ASM transformer class %s", name);
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public byte[] transform(String name, String transformedName, byte[] bytes)
+    {
+        int start = 0;
+        while (start < transformers.length)
+        {
+            if (!chained[start])
+            {
+                bytes = transformers[start].transform(name, transformedName, bytes);
+                start++;
+                continue;
+            }
+            int end = start + 1;
+            while (end < transformers.length && chained[end])
+            {
+                end++;
+            }
+            bytes = transformNodes(start, end, name, transformedName, bytes);
+            start = end;
+        }
+        return bytes;
+    }
+
+    private byte[] transformNodes(int start, int end, String name, String transformedName, byte[] bytes)
+    {
+        if (bytes == null)
+        {
+            return null;
+        }
+        boolean[] handles = new boolean[end - start];
+        boolean any = false;
+        for (int i = start; i < end; i++)
+        {
+            handles[i - start] = ((ClassNodeTransformer)transformers[i]).handles(name, transformedName, bytes);
+            any |= handles[i - start];
+        }
+        if (!any)
+        {
+            return bytes;
+        }
+
+        ClassNode classNode = new ClassNode();
+        new ClassReader(bytes).accept(classNode, 0);
+        int flags = 0;
+        boolean changed = false;
+        for (int i = start; i < end; i++)
+        {
+            ClassNodeTransformer transformer = (ClassNodeTransformer)transformers[i];
+            if (handles[i - start] && transformer.transform(name, transformedName, classNode))
+            {
+                flags |= transformer.getWriterFlags();
+                changed = true;
+            }
+        }
+        if (!changed)
+        {
+            return bytes;
+        }
+        ClassWriter writer = new ClassWriter(flags);
+        classNode.accept(writer);
+        return writer.toByteArray();
+    }
+
+    /**
+     * The transformers of the FML core plugin.
+     */
+    public static class Core extends ClassNodeTransformerChain
+    {
+        public Core()
+        {
+            super("cpw.mods.fml.common.asm.transformers.MarkerTransformer",
+                  "cpw.mods.fml.common.asm.transformers.SideTransformer",
+                  "cpw.mods.fml.common.asm.transformers.EventSubscriptionTransformer");
+        }
+    }
+
+    /**
+     * The access transformers of all coremods and mod jars, followed by the ItemStack, chunk save and crafting lookup transformers.
+     */
+    public static class Access extends ClassNodeTransformerChain
+    {
+        public Access()
+        {
+            super(accessTransformers());
+        }
+
+        private static String[] accessTransformers()
+        {
+            List<String> names = Lists.newArrayList(CoreModManager.getAccessTransformers());
+            names.add("cpw.mods.fml.common.asm.transformers.ModAccessTransformer");
+            names.add("cpw.mods.fml.common.asm.transformers.ItemStackTransformer");
+            names.add("net.minecraftforge.classloading.ChunkSaveTransformer");
+            names.add("net.minecraftforge.classloading.CraftingLookupTransformer");
+            return names.toArray(new String[names.size()]);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package cpw.mods.fml.common.asm.transformers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+import org.apache.logging.log4j.Level;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+
+import cpw.mods.fml.relauncher.FMLRelaunchLog;
+
+/**
+ * Stores the output of all transformers registered during launch, so later launches with the same setup load classes without running them.
+ * Enabled with -Dfml.cacheTransformedClasses=true.
+ *
+ * The cache lives in fmlcache/transformed/&lt;fingerprint&gt;. The fingerprint covers the transformer classes in order, every jar on the launch
+ * classpath and every file in the mods directories, by name, size and modification time. That includes the binary patches, the access
+ * transformer configs and all coremods, so changing any of them starts a new cache. Each class is stored with the SHA-1 of its untransformed
+ * bytes and only reused while they match.
+ *
+ * Transformers registered after launch, like the {@link ModAPITransformer}, still run on every load. Coremods whose output depends on
+ * anything else, like their config files, should not be used with the cache.
+ */
+public class TransformedClassCache implements IClassTransformer
+{
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("fml.cacheTransformedClasses", "false"));
+
+    private final IClassTransformer[] transformers;
+    private final File dir;
+    private int hits;
+    private int misses;
+
+    private TransformedClassCache(List<IClassTransformer> transformers, File dir)
+    {
+        this.transformers = transformers.toArray(new IClassTransformer[transformers.size()]);
+        this.dir = dir;
+    }
+
+    /**
+     * Replaces all transformers registered so far by a cache running them.
+     */
+    @SuppressWarnings("unchecked")
+    public static void install(LaunchClassLoader classLoader, File mcDir)
+    {
+        try
+        {
+            Field field = LaunchClassLoader.class.getDeclaredField("transformers");
+            field.setAccessible(true);
+            List<IClassTransformer> registered = (List<IClassTransformer>)field.get(classLoader);
+
+            String fingerprint = fingerprint(classLoader, registered, mcDir);
+            if (fingerprint == null)
+            {
+                return;
+            }
+            File root = new File(mcDir, "fmlcache/transformed");
+            File dir = new File(root, fingerprint);
+            cleanup(root, dir);
+            if (!dir.isDirectory() && !dir.mkdirs())
+            {
+                FMLRelaunchLog.warning("Unable to create the transformed class cache %s, it will not be used", dir);
+                return;
+            }
+
+            TransformedClassCache cache = new TransformedClassCache(registered, dir);
+            registered.clear();
+            registered.add(cache);
+            FMLRelaunchLog.info("Caching the output of %d class transformers in %s", cache.transformers.length, dir);
+        }
+        catch (Exception e)
+        {
+            FMLRelaunchLog.log(Level.ERROR, e, "Unable to set up the transformed class cache, it will not be used");
+        }
+    }
+
+    private static String fingerprint(LaunchClassLoader classLoader, List<IClassTransformer> registered, File mcDir) throws Exception
+    {
+        Hasher hasher = Hashing.sha1().newHasher();
+        for (IClassTransformer transformer : registered)
+        {
+            hasher.putString(transformer.getClass().getName(), Charsets.UTF_8);
+        }
+        for (URL url : classLoader.getSources())
+        {
+            if (!"file".equals(url.getProtocol()))
+            {
+                continue;
+            }
+            File file = new File(url.toURI());
+            if (file.isDirectory())
+            {
+                // Can't tell when classes in a directory change without walking it
+                FMLRelaunchLog.info("Not caching transformed classes, %s is a directory", file);
+                return null;
+            }
+            putFile(hasher, file);
+        }
+        File mods = new File(mcDir, "mods");
+        putDirectory(hasher, mods);
+        File[] versions = mods.listFiles();
+        if (versions != null)
+        {
+            Arrays.sort(versions);
+            for (File version : versions)
+            {
+                if (version.isDirectory())
+                {
+                    putDirectory(hasher, version);
+                }
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putDirectory(Hasher hasher, File dir)
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files)
+        {
+            if (file.isFile())
+            {
+                putFile(hasher, file);
+            }
+        }
+    }
+
+    private static void putFile(Hasher hasher, File file)
+    {
+        hasher.putString(file.getAbsolutePath(), Charsets.UTF_8).putLong(file.length()).putLong(file.lastModified());
+    }
+
+    private static void cleanup(File root, File current)
+    {
+        File[] stale = root.listFiles();
+        if (stale == null)
+        {
+            return;
+        }
+        for (File dir : stale)
+        {
+            if (dir.isDirectory() && !dir.equals(current))
+            {
+                File[] files = dir.listFiles();
+                if (files != null)
+                {
+                    for (File file : files)
+                    {
+                        file.delete();
+                    }
+                }
+                dir.delete();
+            }
+        }
+    }
+
+    @Override
+    public byte[] transform(String name, String transformedName, byte[] bytes)
+    {
+        if (bytes == null)
+        {
+            return run(name, transformedName, bytes);
+        }
+        byte[] hash = Hashing.sha1().hashBytes(bytes).asBytes();
+        File file = new File(dir, transformedName + ".bin");
+        byte[] cached = read(file, hash);
+        if (cached != null)
+        {
+            hits++;
+            return cached;
+        }
+        misses++;
+        byte[] ret = run(name, transformedName, bytes);
+        if (ret != null)
+        {
+            write(file, hash, ret);
+        }
+        if (misses % 1000 == 0)
+        {
+            FMLRelaunchLog.fine("Transformed class cache: %d hits, %d misses", hits, misses);
+        }
+        return ret;
+    }
+
+    private byte[] run(String name, String transformedName, byte[] bytes)
+    {
+        for (IClassTransformer transformer : transformers)
+        {
+            bytes = transformer.transform(name, transformedName, bytes);
+        }
+        return bytes;
+    }
+
+    private static byte[] read(File file, byte[] hash)
+    {
+        if (!file.isFile())
+        {
+            return null;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            byte[] stored = new byte[hash.length];
+            in.readFully(stored);
+            if (!Arrays.equals(stored, hash))
+            {
+                return null;
+            }
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return data;
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to read the cached class %s", file);
+            return null;
+        }
+        finally
+        {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    private static void write(File file, byte[] hash, byte[] data)
+    {
+        File tmp = new File(file.getPath() + ".tmp");
+        try
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try
+            {
+                out.write(hash);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            finally
+            {
+                out.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file))
+            {
+                tmp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to cache the transformed class %s", file);
+            tmp.delete();
+        }
+    }
+}
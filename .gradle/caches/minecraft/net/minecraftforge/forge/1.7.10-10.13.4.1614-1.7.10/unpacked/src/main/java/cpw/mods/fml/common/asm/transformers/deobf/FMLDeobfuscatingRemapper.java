@@ -0,0 +1,652 @@
+/*
+ * Forge Mod Loader
+ * Copyright (c) 2012-2013 cpw.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors:
+ *     cpw - implementation
+ */
+
+package cpw.mods.fml.common.asm.transformers.deobf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+import org.apache.logging.log4j.Level;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.BiMap;
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableBiMap.Builder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import cpw.mods.fml.common.patcher.ClassPatchManager;
+import cpw.mods.fml.relauncher.FMLRelaunchLog;
+
+public class FMLDeobfuscatingRemapper extends Remapper {
+    public static final FMLDeobfuscatingRemapper INSTANCE = new FMLDeobfuscatingRemapper();
+
+    private BiMap<String, String> classNameBiMap;
+
+    // The mappings declared by each class itself, inherited ones are found through the hierarchy
+    private Map<String,Map<String,String>> rawFieldMaps;
+    private Map<String,Map<String,String>> rawMethodMaps;
+
+    private final ConcurrentMap<String,ClassMappings> hierarchy = new ConcurrentHashMap<String,ClassMappings>();
+
+    private LaunchClassLoader classLoader;
+
+
+    private static final boolean DEBUG_REMAPPING = Boolean.parseBoolean(System.getProperty("fml.remappingDebug", "false"));
+    private static final boolean DUMP_FIELD_MAPS = Boolean.parseBoolean(System.getProperty("fml.remappingDebug.dumpFieldMaps", "false")) && DEBUG_REMAPPING;
+    private static final boolean DUMP_METHOD_MAPS = Boolean.parseBoolean(System.getProperty("fml.remappingDebug.dumpMethodMaps", "false")) && DEBUG_REMAPPING;
+
+    private static final boolean useCache = !Boolean.parseBoolean(System.getProperty("fml.disableDeobfCache", "false"));
+    private static final int CACHE_VERSION = 1;
+
+    private FMLDeobfuscatingRemapper()
+    {
+        classNameBiMap=ImmutableBiMap.of();
+        rawFieldMaps = Collections.emptyMap();
+        rawMethodMaps = Collections.emptyMap();
+    }
+
+    public void setupLoadOnly(String deobfFileName, boolean loadAll)
+    {
+        try
+        {
+            File mapData = new File(deobfFileName);
+            LZMAInputSupplier zis = new LZMAInputSupplier(new FileInputStream(mapData));
+            parse(new String(zis.read(), Charsets.UTF_8), loadAll);
+        }
+        catch (IOException ioe)
+        {
+            FMLRelaunchLog.log(Level.ERROR, ioe, "An error occurred loading the deobfuscation map data");
+        }
+    }
+
+    /**
+     * Loads the deobfuscation data.
+     *
+     * Resolving the field descriptors means reading every class with a field mapping, so the parsed mappings are stored in
+     * fmlcache/deobf, keyed by the hash of the deobfuscation data and of the binary patches, and read back from there on later
+     * launches. -Dfml.disableDeobfCache=true always parses the data.
+     */
+    public void setup(File mcDir, LaunchClassLoader classLoader, String deobfFileName)
+    {
+        this.classLoader = classLoader;
+        try
+        {
+            InputStream classData = getClass().getResourceAsStream(deobfFileName);
+            byte[] compressed;
+            try
+            {
+                compressed = ByteStreams.toByteArray(classData);
+            }
+            finally
+            {
+                Closeables.closeQuietly(classData);
+            }
+            File cacheFile = null;
+            if (useCache && mcDir != null)
+            {
+                String hash = Hashing.sha1().newHasher()
+                        .putBytes(compressed)
+                        .putString(Strings.nullToEmpty(ClassPatchManager.INSTANCE.getPatchSetHash()), Charsets.UTF_8)
+                        .hash().toString();
+                cacheFile = new File(mcDir, "fmlcache/deobf/" + hash + ".bin");
+                if (readCache(cacheFile))
+                {
+                    FMLRelaunchLog.fine("Read the deobfuscation data for %d classes from %s", classNameBiMap.size(), cacheFile);
+                    return;
+                }
+            }
+            LZMAInputSupplier zis = new LZMAInputSupplier(new ByteArrayInputStream(compressed));
+            parse(new String(zis.read(), Charsets.UTF_8), true);
+            if (cacheFile != null)
+            {
+                writeCache(cacheFile);
+            }
+        }
+        catch (IOException ioe)
+        {
+            FMLRelaunchLog.log(Level.ERROR, ioe, "An error occurred loading the deobfuscation map data");
+        }
+    }
+
+    private void parse(String srg, boolean loadAll)
+    {
+        Map<String,Map<String,String>> fields = Maps.newHashMap();
+        Map<String,Map<String,String>> methods = Maps.newHashMap();
+        Builder<String, String> builder = ImmutableBiMap.<String,String>builder();
+        int start = 0;
+        int length = srg.length();
+        while (start < length)
+        {
+            int end = srg.indexOf('\n', start);
+            if (end < 0)
+            {
+                end = length;
+            }
+            String[] parts = split(srg.substring(start, end));
+            start = end + 1;
+            if (parts.length == 0)
+            {
+                continue;
+            }
+            String typ = parts[0];
+            if ("CL".equals(typ))
+            {
+                parseClass(builder, parts);
+            }
+            else if ("MD".equals(typ) && loadAll)
+            {
+                parseMethod(methods, parts);
+            }
+            else if ("FD".equals(typ) && loadAll)
+            {
+                parseField(fields, parts);
+            }
+        }
+        classNameBiMap = builder.build();
+        rawFieldMaps = fields;
+        rawMethodMaps = methods;
+        hierarchy.clear();
+    }
+
+    // Splits a line on spaces and colons, like the Splitter this replaced, without building an Iterable per line
+    private static String[] split(String line)
+    {
+        String[] parts = new String[4];
+        int count = 0;
+        int start = -1;
+        for (int i = 0, length = line.length(); i <= length; i++)
+        {
+            char c = i < length ? line.charAt(i) : ' ';
+            boolean separator = c == ' ' || c == ':' || Character.isWhitespace(c);
+            if (separator && start >= 0)
+            {
+                if (count == parts.length)
+                {
+                    parts = Arrays.copyOf(parts, count * 2);
+                }
+                parts[count++] = line.substring(start, i);
+                start = -1;
+            }
+            else if (!separator && start < 0)
+            {
+                start = i;
+            }
+        }
+        return count == parts.length ? parts : Arrays.copyOf(parts, count);
+    }
+
+    public boolean isRemappedClass(String className)
+    {
+        return !map(className).equals(className);
+    }
+
+    private void parseField(Map<String,Map<String,String>> fields, String[] parts)
+    {
+        String oldSrg = parts[1];
+        int lastOld = oldSrg.lastIndexOf('/');
+        String cl = oldSrg.substring(0,lastOld).intern();
+        String oldName = oldSrg.substring(lastOld+1);
+        String newSrg = parts[2];
+        int lastNew = newSrg.lastIndexOf('/');
+        String newName = newSrg.substring(lastNew+1).intern();
+        Map<String,String> fieldMap = fields.get(cl);
+        if (fieldMap == null)
+        {
+            fieldMap = Maps.newHashMap();
+            fields.put(cl, fieldMap);
+        }
+        fieldMap.put(oldName + ":" + getFieldType(cl, oldName), newName);
+        fieldMap.put(oldName + ":null", newName);
+    }
+
+    /*
+     * Cache the field descriptions for classes so we don't repeatedly reload the same data again and again
+     */
+    private final ConcurrentMap<String,Map<String,String>> fieldDescriptions = new ConcurrentHashMap<String,Map<String,String>>();
+
+    private String getFieldType(String owner, String name)
+    {
+        Map<String,String> descriptions = fieldDescriptions.get(owner);
+        if (descriptions != null)
+        {
+            return descriptions.get(name);
+        }
+        try
+        {
+            byte[] classBytes = ClassPatchManager.INSTANCE.getPatchedResource(owner, map(owner).replace('/', '.'), classLoader);
+            if (classBytes == null)
+            {
+                return null;
+            }
+            ClassReader cr = new ClassReader(classBytes);
+            ClassNode classNode = new ClassNode();
+            cr.accept(classNode, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            Map<String,String> resMap = new ConcurrentHashMap<String,String>();
+            for (FieldNode fieldNode : (List<FieldNode>) classNode.fields) {
+                resMap.put(fieldNode.name, fieldNode.desc);
+            }
+            descriptions = fieldDescriptions.putIfAbsent(owner, resMap);
+            return (descriptions != null ? descriptions : resMap).get(name);
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.ERROR,e, "A critical exception occured reading a class file %s", owner);
+        }
+        return null;
+    }
+
+    private void parseClass(Builder<String, String> builder, String[] parts)
+    {
+        builder.put(parts[1].intern(),parts[2].intern());
+    }
+
+    private void parseMethod(Map<String,Map<String,String>> methods, String[] parts)
+    {
+        String oldSrg = parts[1];
+        int lastOld = oldSrg.lastIndexOf('/');
+        String cl = oldSrg.substring(0,lastOld).intern();
+        String oldName = oldSrg.substring(lastOld+1);
+        String sig = parts[2];
+        String newSrg = parts[3];
+        int lastNew = newSrg.lastIndexOf('/');
+        String newName = newSrg.substring(lastNew+1).intern();
+        Map<String,String> methodMap = methods.get(cl);
+        if (methodMap == null)
+        {
+            methodMap = Maps.newHashMap();
+            methods.put(cl, methodMap);
+        }
+        methodMap.put(oldName+sig, newName);
+    }
+
+    private boolean readCache(File file)
+    {
+        if (!file.isFile())
+        {
+            return false;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != CACHE_VERSION)
+            {
+                return false;
+            }
+            Builder<String, String> builder = ImmutableBiMap.<String,String>builder();
+            for (int i = in.readInt(); i > 0; i--)
+            {
+                builder.put(in.readUTF().intern(), in.readUTF().intern());
+            }
+            Map<String,Map<String,String>> fields = readMaps(in);
+            Map<String,Map<String,String>> methods = readMaps(in);
+            classNameBiMap = builder.build();
+            rawFieldMaps = fields;
+            rawMethodMaps = methods;
+            hierarchy.clear();
+            return true;
+        }
+        catch (Exception e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to read the cached deobfuscation data %s, parsing it again", file);
+            return false;
+        }
+        finally
+        {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    private static Map<String,Map<String,String>> readMaps(DataInputStream in) throws IOException
+    {
+        int owners = in.readInt();
+        Map<String,Map<String,String>> ret = Maps.newHashMapWithExpectedSize(owners);
+        for (int i = 0; i < owners; i++)
+        {
+            String owner = in.readUTF().intern();
+            int size = in.readInt();
+            Map<String,String> map = Maps.newHashMapWithExpectedSize(size);
+            for (int j = 0; j < size; j++)
+            {
+                map.put(in.readUTF(), in.readUTF().intern());
+            }
+            ret.put(owner, map);
+        }
+        return ret;
+    }
+
+    private void writeCache(File file)
+    {
+        File tmp = new File(file.getPath() + ".tmp");
+        try
+        {
+            Files.createParentDirs(file);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try
+            {
+                out.writeInt(CACHE_VERSION);
+                out.writeInt(classNameBiMap.size());
+                for (Map.Entry<String, String> entry : classNameBiMap.entrySet())
+                {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue());
+                }
+                writeMaps(out, rawFieldMaps);
+                writeMaps(out, rawMethodMaps);
+            }
+            finally
+            {
+                out.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file))
+            {
+                tmp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to cache the deobfuscation data in %s", file);
+            tmp.delete();
+        }
+    }
+
+    private static void writeMaps(DataOutputStream out, Map<String,Map<String,String>> maps) throws IOException
+    {
+        out.writeInt(maps.size());
+        for (Map.Entry<String, Map<String,String>> owner : maps.entrySet())
+        {
+            out.writeUTF(owner.getKey());
+            out.writeInt(owner.getValue().size());
+            for (Map.Entry<String, String> entry : owner.getValue().entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public String mapFieldName(String owner, String name, String desc)
+    {
+        if (classNameBiMap == null || classNameBiMap.isEmpty())
+        {
+            return name;
+        }
+        ClassMappings mappings = getMappings(owner);
+        if (!mappings.mapped)
+        {
+            return name;
+        }
+        String mapped = mappings.lookup(name+":"+desc, true);
+        return mapped != null ? mapped : name;
+    }
+
+    @Override
+    public String map(String typeName)
+    {
+        if (classNameBiMap == null || classNameBiMap.isEmpty())
+        {
+            return typeName;
+        }
+        String mapped = classNameBiMap.get(typeName);
+        if (mapped != null)
+        {
+            return mapped;
+        }
+        int dollarIdx = typeName.lastIndexOf('$');
+        if (dollarIdx > -1)
+        {
+            return map(typeName.substring(0, dollarIdx)) + "$" + typeName.substring(dollarIdx + 1);
+        }
+        return typeName;
+    }
+
+    public String unmap(String typeName)
+    {
+        if (classNameBiMap == null || classNameBiMap.isEmpty())
+        {
+            return typeName;
+        }
+
+        String unmapped = classNameBiMap.inverse().get(typeName);
+        if (unmapped != null)
+        {
+            return unmapped;
+        }
+        int dollarIdx = typeName.lastIndexOf('$');
+        if (dollarIdx > -1)
+        {
+            return unmap(typeName.substring(0, dollarIdx)) + "$" + typeName.substring(dollarIdx + 1);
+        }
+        return typeName;
+    }
+
+
+    @Override
+    public String mapMethodName(String owner, String name, String desc)
+    {
+        if (classNameBiMap==null || classNameBiMap.isEmpty())
+        {
+            return name;
+        }
+        ClassMappings mappings = getMappings(owner);
+        if (!mappings.mapped)
+        {
+            return name;
+        }
+        String mapped = mappings.lookup(name+desc, false);
+        return mapped != null ? mapped : name;
+    }
+
+    private ClassMappings getMappings(String className)
+    {
+        ClassMappings mappings = hierarchy.get(className);
+        if (mappings == null)
+        {
+            mappings = findAndMergeSuperMaps(className);
+            if (DUMP_FIELD_MAPS)
+            {
+                FMLRelaunchLog.finer("Field map for %s : %s %s", className, rawFieldMaps.get(className), mappings);
+            }
+            if (DUMP_METHOD_MAPS)
+            {
+                FMLRelaunchLog.finer("Method map for %s : %s %s", className, rawMethodMaps.get(className), mappings);
+            }
+        }
+        return mappings;
+    }
+
+    private ClassMappings findAndMergeSuperMaps(String name)
+    {
+        String superName = null;
+        String[] interfaces = new String[0];
+        try
+        {
+            byte[] classBytes = ClassPatchManager.INSTANCE.getPatchedResource(name, map(name), classLoader);
+            if (classBytes != null)
+            {
+                ClassReader cr = new ClassReader(classBytes);
+                superName = cr.getSuperName();
+                interfaces = cr.getInterfaces();
+            }
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        return merge(name, superName, interfaces);
+    }
+
+    /**
+     * Records the parents of a class, so lookups on it also find the mappings of its superclass and interfaces.
+     */
+    public void mergeSuperMaps(String name, String superName, String[] interfaces)
+    {
+        if (classNameBiMap == null || classNameBiMap.isEmpty())
+        {
+            return;
+        }
+        merge(name, superName, interfaces);
+    }
+
+    private ClassMappings merge(String name, String superName, String[] interfaces)
+    {
+        ClassMappings mappings;
+        // Skip Object
+        if (Strings.isNullOrEmpty(superName))
+        {
+            mappings = ClassMappings.EMPTY;
+        }
+        else
+        {
+            // Later parents take precedence, like the maps used to be merged in order
+            ClassMappings[] parents = new ClassMappings[interfaces.length + 1];
+            for (int i = 0; i < interfaces.length; i++)
+            {
+                parents[interfaces.length - 1 - i] = getMappings(interfaces[i]);
+            }
+            parents[interfaces.length] = getMappings(superName);
+            mappings = new ClassMappings(name, rawFieldMaps.get(name), rawMethodMaps.get(name), parents);
+        }
+        hierarchy.put(name, mappings);
+        return mappings;
+    }
+
+    public Set<String> getObfedClasses()
+    {
+        return ImmutableSet.copyOf(classNameBiMap.keySet());
+    }
+
+    public String getStaticFieldType(String oldType, String oldName, String newType, String newName)
+    {
+        String fType = getFieldType(oldType, oldName);
+        if (oldType.equals(newType))
+        {
+            return fType;
+        }
+        Map<String,String> newClassMap = fieldDescriptions.get(newType);
+        if (newClassMap == null)
+        {
+            newClassMap = new ConcurrentHashMap<String,String>();
+            Map<String,String> existing = fieldDescriptions.putIfAbsent(newType, newClassMap);
+            if (existing != null)
+            {
+                newClassMap = existing;
+            }
+        }
+        if (fType != null)
+        {
+            newClassMap.put(newName, fType);
+        }
+        return fType;
+    }
+
+    /**
+     * The mappings a class declares and links to the ones of its parents. Lookups walk up the hierarchy once per member and
+     * remember the answer, so inherited mappings aren't copied into every subclass.
+     */
+    private static final class ClassMappings
+    {
+        static final ClassMappings EMPTY = new ClassMappings(null, null, null, new ClassMappings[0]);
+        // Stands for a member without a mapping in the lookup caches, which can't hold null
+        private static final String UNMAPPED = new String();
+
+        private final String name;
+        private final Map<String,String> fields;
+        private final Map<String,String> methods;
+        private final ClassMappings[] parents;
+        // Whether this class or any parent has mappings at all, most classes outside Minecraft don't
+        final boolean mapped;
+        private final ConcurrentMap<String,String> fieldLookups;
+        private final ConcurrentMap<String,String> methodLookups;
+
+        ClassMappings(String name, Map<String,String> fields, Map<String,String> methods, ClassMappings[] parents)
+        {
+            this.name = name;
+            this.fields = fields != null ? fields : Collections.<String,String>emptyMap();
+            this.methods = methods != null ? methods : Collections.<String,String>emptyMap();
+            this.parents = parents;
+            boolean mapped = !this.fields.isEmpty() || !this.methods.isEmpty();
+            for (ClassMappings parent : parents)
+            {
+                mapped |= parent.mapped;
+            }
+            this.mapped = mapped;
+            this.fieldLookups = mapped ? new ConcurrentHashMap<String,String>() : null;
+            this.methodLookups = mapped ? new ConcurrentHashMap<String,String>() : null;
+        }
+
+        /**
+         * @return the new name of the member, or null if it isn't mapped
+         */
+        String lookup(String key, boolean field)
+        {
+            if (!mapped)
+            {
+                return null;
+            }
+            ConcurrentMap<String,String> lookups = field ? fieldLookups : methodLookups;
+            String ret = lookups.get(key);
+            if (ret == null)
+            {
+                ret = (field ? fields : methods).get(key);
+                for (int i = 0; ret == null && i < parents.length; i++)
+                {
+                    ret = parents[i].lookup(key, field);
+                }
+                lookups.put(key, ret != null ? ret : UNMAPPED);
+                return ret;
+            }
+            return ret == UNMAPPED ? null : ret;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(name).append(" -> [");
+            for (int i = parents.length - 1; i >= 0; i--)
+            {
+                sb.append(parents[i].name).append(i > 0 ? ", " : "");
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
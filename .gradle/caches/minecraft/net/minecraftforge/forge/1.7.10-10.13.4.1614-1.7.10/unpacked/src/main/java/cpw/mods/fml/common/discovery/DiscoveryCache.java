@@ -0,0 +1,142 @@
+package cpw.mods.fml.common.discovery;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.logging.log4j.Level;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.discovery.asm.ASMModParser;
+
+/**
+ * Stores the classes found in each mod jar, as parsed by {@link ASMModParser}, so unchanged jars are not read again on the next launch.
+ *
+ * There is one file per jar, named after the hash of its path. An entry is only used when the size, the modification time and the
+ * SHA-1 of the jar all match the ones it was written for.
+ */
+class DiscoveryCache
+{
+    private static final int VERSION = 1;
+    private final File dir;
+
+    DiscoveryCache(File dir)
+    {
+        this.dir = dir;
+    }
+
+    /**
+     * @return the parsed classes by jar entry name in jar order, or null if the jar isn't cached or changed since
+     */
+    Map<String, ASMModParser> read(File jar)
+    {
+        File file = cacheFile(jar);
+        if (!file.isFile())
+        {
+            return null;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != VERSION || in.readLong() != jar.length() || in.readLong() != jar.lastModified())
+            {
+                return null;
+            }
+            byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            if (!Arrays.equals(hash, hash(jar)))
+            {
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, ASMModParser> classes = Maps.newLinkedHashMap();
+            for (int i = 0; i < count; i++)
+            {
+                String name = in.readUTF();
+                classes.put(name, ASMModParser.read(in));
+            }
+            FMLLog.finer("Using the cached class data for %s", jar.getName());
+            return classes;
+        }
+        catch (Exception e)
+        {
+            FMLLog.log(Level.WARN, e, "Unable to read the cached class data for %s, it will be scanned again", jar.getName());
+            return null;
+        }
+        finally
+        {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    void write(File jar, Map<String, ASMModParser> classes)
+    {
+        File file = cacheFile(jar);
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try
+        {
+            Files.createParentDirs(file);
+            byte[] hash = hash(jar);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(VERSION);
+            out.writeLong(jar.length());
+            out.writeLong(jar.lastModified());
+            out.writeByte(hash.length);
+            out.write(hash);
+            out.writeInt(classes.size());
+            for (Map.Entry<String, ASMModParser> entry : classes.entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+            out.close();
+            out = null;
+            file.delete();
+            if (!tmp.renameTo(file))
+            {
+                tmp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            FMLLog.log(Level.WARN, e, "Unable to cache the class data for %s", jar.getName());
+            tmp.delete();
+        }
+        finally
+        {
+            try
+            {
+                Closeables.close(out, true);
+            }
+            catch (IOException e)
+            {
+                // swallowed
+            }
+        }
+    }
+
+    private File cacheFile(File jar)
+    {
+        return new File(dir, Hashing.sha1().hashString(jar.getAbsolutePath(), Charsets.UTF_8).toString() + ".bin");
+    }
+
+    private static byte[] hash(File jar) throws IOException
+    {
+        return Files.hash(jar, Hashing.sha1()).asBytes();
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Forge Mod Loader
+ * Copyright (c) 2012-2013 cpw.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ *
+ * Contributors:
+ *     cpw - implementation
+ */
+
+package cpw.mods.fml.common.discovery.asm;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.objectweb.asm.Type;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import cpw.mods.fml.common.discovery.asm.ASMModParser.AnnotationType;
+
+public class ModAnnotation
+{
+    public class EnumHolder
+    {
+        private String desc;
+        private String value;
+
+        public EnumHolder(String desc, String value)
+        {
+            this.desc = desc;
+            this.value = value;
+        }
+
+        public String getDesc()
+        {
+            return desc;
+        }
+
+        public String getValue()
+        {
+            return value;
+        }
+    }
+    AnnotationType type;
+    Type asmType;
+    String member;
+    Map<String,Object> values = Maps.newHashMap();
+    private ArrayList<Object> arrayList;
+    private String arrayName;
+    public ModAnnotation(AnnotationType type, Type asmType, String member)
+    {
+        this.type = type;
+        this.asmType = asmType;
+        this.member = member;
+    }
+
+    public ModAnnotation(AnnotationType type, Type asmType, ModAnnotation parent)
+    {
+        this.type = type;
+        this.asmType = asmType;
+    }
+    @Override
+    public String toString()
+    {
+        return Objects.toStringHelper("Annotation")
+                .add("type",type)
+                .add("name",asmType.getClassName())
+                .add("member",member)
+                .add("values", values)
+                .toString();
+    }
+    public AnnotationType getType()
+    {
+        return type;
+    }
+    public Type getASMType()
+    {
+        return asmType;
+    }
+    public String getMember()
+    {
+        return member;
+    }
+    public Map<String, Object> getValues()
+    {
+        return values;
+    }
+    public void addArray(String name)
+    {
+        this.arrayList = Lists.newArrayList();
+        this.arrayName = name;
+    }
+    public void addProperty(String key, Object value)
+    {
+        if (this.arrayList != null)
+        {
+            arrayList.add(value);
+        }
+        else
+        {
+            values.put(key, value);
+        }
+    }
+
+    public void addEnumProperty(String key, String enumName, String value)
+    {
+        values.put(key, new EnumHolder(enumName, value));
+    }
+
+    public void endArray()
+    {
+        values.put(arrayName, arrayList);
+        arrayList = null;
+    }
+
+    void write(DataOutput out) throws IOException
+    {
+        out.writeByte(type.ordinal());
+        out.writeUTF(asmType.getDescriptor());
+        out.writeBoolean(member != null);
+        if (member != null)
+        {
+            out.writeUTF(member);
+        }
+        writeValue(out, values);
+    }
+
+    static ModAnnotation read(DataInput in) throws IOException
+    {
+        AnnotationType type = AnnotationType.values()[in.readByte()];
+        Type asmType = Type.getType(in.readUTF());
+        ModAnnotation ann = new ModAnnotation(type, asmType, in.readBoolean() ? in.readUTF() : null);
+        ann.values = ann.readMap(in);
+        return ann;
+    }
+
+    // Annotation values are the boxed primitives, Strings, Types and primitive arrays passed to AnnotationVisitor.visit,
+    // EnumHolders, Lists for arrays and Maps for nested annotations
+    private static void writeValue(DataOutput out, Object value) throws IOException
+    {
+        if (value instanceof String)
+        {
+            out.writeByte('s');
+            out.writeUTF((String)value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte('I');
+            out.writeInt((Integer)value);
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte('Z');
+            out.writeBoolean((Boolean)value);
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte('J');
+            out.writeLong((Long)value);
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte('D');
+            out.writeDouble((Double)value);
+        }
+        else if (value instanceof Float)
+        {
+            out.writeByte('F');
+            out.writeFloat((Float)value);
+        }
+        else if (value instanceof Byte)
+        {
+            out.writeByte('B');
+            out.writeByte((Byte)value);
+        }
+        else if (value instanceof Short)
+        {
+            out.writeByte('S');
+            out.writeShort((Short)value);
+        }
+        else if (value instanceof Character)
+        {
+            out.writeByte('C');
+            out.writeChar((Character)value);
+        }
+        else if (value instanceof Type)
+        {
+            out.writeByte('T');
+            out.writeUTF(((Type)value).getDescriptor());
+        }
+        else if (value instanceof EnumHolder)
+        {
+            out.writeByte('E');
+            out.writeUTF(((EnumHolder)value).desc);
+            out.writeUTF(((EnumHolder)value).value);
+        }
+        else if (value instanceof List)
+        {
+            out.writeByte('L');
+            out.writeInt(((List<?>)value).size());
+            for (Object element : (List<?>)value)
+            {
+                writeValue(out, element);
+            }
+        }
+        else if (value instanceof Map)
+        {
+            out.writeByte('M');
+            out.writeInt(((Map<?,?>)value).size());
+            for (Map.Entry<?,?> entry : ((Map<?,?>)value).entrySet())
+            {
+                out.writeUTF((String)entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        }
+        else if (value != null && value.getClass().isArray())
+        {
+            // Primitive arrays, stored as a list of their boxed elements
+            int length = Array.getLength(value);
+            out.writeByte('[');
+            out.writeUTF(Type.getDescriptor(value.getClass().getComponentType()));
+            out.writeInt(length);
+            for (int i = 0; i < length; i++)
+            {
+                writeValue(out, Array.get(value, i));
+            }
+        }
+        else
+        {
+            throw new IOException("Unable to store the annotation value " + value);
+        }
+    }
+
+    private Object readValue(DataInput in) throws IOException
+    {
+        int tag = in.readByte();
+        switch (tag)
+        {
+        case 's': return in.readUTF();
+        case 'I': return in.readInt();
+        case 'Z': return in.readBoolean();
+        case 'J': return in.readLong();
+        case 'D': return in.readDouble();
+        case 'F': return in.readFloat();
+        case 'B': return in.readByte();
+        case 'S': return in.readShort();
+        case 'C': return in.readChar();
+        case 'T': return Type.getType(in.readUTF());
+        case 'E': return new EnumHolder(in.readUTF(), in.readUTF());
+        case 'M': return readMap(in);
+        case 'L':
+        {
+            int size = in.readInt();
+            ArrayList<Object> list = Lists.newArrayListWithCapacity(size);
+            for (int i = 0; i < size; i++)
+            {
+                list.add(readValue(in));
+            }
+            return list;
+        }
+        case '[':
+        {
+            Class<?> component = primitiveType(in.readUTF());
+            int length = in.readInt();
+            Object array = Array.newInstance(component, length);
+            for (int i = 0; i < length; i++)
+            {
+                Array.set(array, i, readValue(in));
+            }
+            return array;
+        }
+        default:
+            throw new IOException("Unknown annotation value type " + tag);
+        }
+    }
+
+    private Map<String,Object> readMap(DataInput in) throws IOException
+    {
+        int tag = in.readByte();
+        if (tag != 'M')
+        {
+            throw new IOException("Expected annotation values, found type " + tag);
+        }
+        int size = in.readInt();
+        Map<String,Object> map = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++)
+        {
+            String key = in.readUTF();
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private static Class<?> primitiveType(String desc) throws IOException
+    {
+        switch (desc.charAt(0))
+        {
+        case 'Z': return boolean.class;
+        case 'B': return byte.class;
+        case 'C': return char.class;
+        case 'S': return short.class;
+        case 'I': return int.class;
+        case 'J': return long.class;
+        case 'F': return float.class;
+        case 'D': return double.class;
+        default: throw new IOException("Unknown annotation array type " + desc);
+        }
+    }
+
+    public ModAnnotation addChildAnnotation(String name, String desc)
+    {
+        ModAnnotation child = new ModAnnotation(AnnotationType.SUBTYPE, Type.getType(desc), this);
+        if (arrayList != null)
+        {
+            arrayList.add(child.getValues());
+        }
+        return child;
+    }
+}
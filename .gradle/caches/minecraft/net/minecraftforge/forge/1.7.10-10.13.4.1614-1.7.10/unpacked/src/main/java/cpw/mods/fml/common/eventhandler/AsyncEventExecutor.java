@@ -0,0 +1,282 @@
+package cpw.mods.fml.common.eventhandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Level;
+
+import com.google.common.primitives.Ints;
+
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.relauncher.Side;
+
+/**
+ * Runs listeners marked with {@link SubscribeEvent#async()} on a bounded pool of worker threads.
+ *
+ * Only events declared {@link Event.AsyncSafe} are delivered asynchronously, since the listener reads the
+ * event while the poster carries on.
+ *
+ * Every asynchronous invocation is queued, in post order, for the tick thread of the side that
+ * posted the event, recorded on the posting thread. Callbacks registered with {@link #onComplete(Runnable)} while the listener runs
+ * are executed on that tick thread once the listener finished and every invocation queued before it
+ * has completed, so completions are always processed in the order the events were posted.
+ *
+ * When the work queue is full, or more than {@code fml.asyncEventMaxPending} invocations of a side wait for
+ * their completions to be processed, the listener runs on the posting thread instead, so a flood of events
+ * slows the poster down rather than growing without bound. Events posted from an asynchronous listener are
+ * delivered on its worker thread, as part of that invocation.
+ *
+ * Exceptions thrown by asynchronous listeners are reported to the exception handler of the bus they were
+ * registered on.
+ */
+public class AsyncEventExecutor
+{
+    private static final int THREADS = Math.max(1, parse("fml.asyncEventThreads", Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_SIZE = Math.max(1, parse("fml.asyncEventQueueSize", 1024));
+    private static final int MAX_PENDING = Math.max(1, parse("fml.asyncEventMaxPending", 4096));
+    private static final ConcurrentHashMap<Class<?>, Boolean> asyncSafe = new ConcurrentHashMap<Class<?>, Boolean>();
+    private static final ThreadLocal<Task> CURRENT = new ThreadLocal<Task>();
+    private static final ConcurrentLinkedQueue<Task> serverCompletions = new ConcurrentLinkedQueue<Task>();
+    private static final ConcurrentLinkedQueue<Task> clientCompletions = new ConcurrentLinkedQueue<Task>();
+    // ConcurrentLinkedQueue.size() walks the queue, so the depths are counted separately
+    private static final AtomicInteger serverPending = new AtomicInteger();
+    private static final AtomicInteger clientPending = new AtomicInteger();
+    private static ThreadPoolExecutor pool;
+
+    /**
+     * Only events declared {@link Event.AsyncSafe} whose outcome can not be changed by listeners are dispatched asynchronously.
+     * Cancelable events and events with a result are always delivered on the posting thread.
+     */
+    static boolean canRunAsync(Event event)
+    {
+        if (event.isCancelable() || event.hasResult())
+        {
+            return false;
+        }
+        Class<?> cls = event.getClass();
+        Boolean safe = asyncSafe.get(cls);
+        if (safe == null)
+        {
+            safe = cls.isAnnotationPresent(Event.AsyncSafe.class);
+            asyncSafe.put(cls, safe);
+        }
+        return safe;
+    }
+
+    static void submit(ASMEventHandler registered, IEventListener listener, Event event, String name)
+    {
+        Side side = CURRENT.get() == null ? getSide() : null;
+        if (side == null || !reserve(side))
+        {
+            // Posted from an asynchronous listener, or too much work is pending already
+            listener.invoke(event);
+            return;
+        }
+        Task task = new Task(registered, listener, event, name, side);
+        queue(side).add(task);
+        getPool().execute(task);
+    }
+
+    private static boolean reserve(Side side)
+    {
+        AtomicInteger pending = pending(side);
+        int count;
+        do
+        {
+            count = pending.get();
+            if (count >= MAX_PENDING)
+            {
+                return false;
+            }
+        }
+        while (!pending.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    /**
+     * Schedules a callback to run on the tick thread of the side that posted the event.
+     *
+     * When called from an asynchronous listener the callback runs after that listener returned,
+     * in post order relative to every other asynchronous invocation. Otherwise it is queued behind
+     * all invocations currently in flight.
+     *
+     * @param callback The callback to run on the tick thread
+     */
+    public static void onComplete(Runnable callback)
+    {
+        Task task = CURRENT.get();
+        if (task != null)
+        {
+            task.callbacks.add(callback);
+        }
+        else
+        {
+            Side side = getSide();
+            task = new Task(null, null, null, "callback", side);
+            task.callbacks.add(callback);
+            task.done = true;
+            pending(side).incrementAndGet();
+            queue(side).add(task);
+        }
+    }
+
+    /**
+     * Runs the callbacks of every completed asynchronous invocation at the head of the queue for the specified side.
+     * Called once per tick by {@link FMLCommonHandler}.
+     */
+    public static void processCompletions(Side side)
+    {
+        ConcurrentLinkedQueue<Task> queue = queue(side);
+        Task task;
+        while ((task = queue.peek()) != null && task.done)
+        {
+            queue.poll();
+            pending(side).decrementAndGet();
+            for (Runnable callback : task.callbacks)
+            {
+                try
+                {
+                    callback.run();
+                }
+                catch (Throwable t)
+                {
+                    FMLLog.log(Level.ERROR, t, "Exception caught running completion callback of asynchronous listener %s", task.name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits up to the specified time for all in flight asynchronous invocations to finish, processing their completions.
+     * Called when the server stops, so work such as database writes is not lost.
+     */
+    public static void flush(Side side, long timeoutMillis)
+    {
+        ConcurrentLinkedQueue<Task> queue = queue(side);
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        processCompletions(side);
+        while (!queue.isEmpty() && System.currentTimeMillis() < deadline)
+        {
+            try
+            {
+                Thread.sleep(1);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            processCompletions(side);
+        }
+        if (!queue.isEmpty())
+        {
+            FMLLog.warning("%d asynchronous event listeners did not finish within %d ms", pending(side).get(), timeoutMillis);
+        }
+    }
+
+    private static Side getSide()
+    {
+        FMLCommonHandler handler = FMLCommonHandler.instance();
+        return handler.getSide().isServer() ? Side.SERVER : handler.getEffectiveSide();
+    }
+
+    private static ConcurrentLinkedQueue<Task> queue(Side side)
+    {
+        return side.isServer() ? serverCompletions : clientCompletions;
+    }
+
+    private static AtomicInteger pending(Side side)
+    {
+        return side.isServer() ? serverPending : clientPending;
+    }
+
+    private static synchronized ThreadPoolExecutor getPool()
+    {
+        if (pool == null)
+        {
+            pool = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "FML Async Event Thread #" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+            pool.allowCoreThreadTimeOut(true);
+        }
+        return pool;
+    }
+
+    private static int parse(String property, int def)
+    {
+        Integer value = Ints.tryParse(System.getProperty(property, String.valueOf(def)));
+        return value == null ? def : value;
+    }
+
+    private static class Task implements Runnable
+    {
+        private final ASMEventHandler registered;
+        private final IEventListener listener;
+        private final Event event;
+        private final String name;
+        // The side that posted the event, whose tick thread runs the callbacks
+        private final Side side;
+        private final List<Runnable> callbacks = new ArrayList<Runnable>(1);
+        private volatile boolean done = false;
+
+        private Task(ASMEventHandler registered, IEventListener listener, Event event, String name, Side side)
+        {
+            this.registered = registered;
+            this.listener = listener;
+            this.event = event;
+            this.name = name;
+            this.side = side;
+        }
+
+        @Override
+        public void run()
+        {
+            Task previous = CURRENT.get();
+            CURRENT.set(this);
+            try
+            {
+                listener.invoke(event);
+            }
+            catch (Throwable t)
+            {
+                if (registered == null || registered.bus == null)
+                {
+                    FMLLog.log(Level.ERROR, t, "Exception caught during asynchronous firing of event %s to %s", event, name);
+                }
+                else
+                {
+                    try
+                    {
+                        registered.bus.handleAsyncException(event, registered, t);
+                    }
+                    catch (Throwable t2)
+                    {
+                        FMLLog.log(Level.ERROR, t2, "Exception caught handling an exception of asynchronous listener %s", name);
+                    }
+                }
+            }
+            finally
+            {
+                CURRENT.set(previous);
+                done = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package cpw.mods.fml.common.eventhandler;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+import org.apache.logging.log4j.Level;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.MapMaker;
+import com.google.common.reflect.TypeToken;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.Loader;
+import cpw.mods.fml.common.ModContainer;
+
+public class EventBus implements IEventExceptionHandler
+{
+    private static int maxID = 0;
+    private static final ConcurrentHashMap<Class<?>, ListenerList> eventLists = new ConcurrentHashMap<Class<?>, ListenerList>();
+
+    private ConcurrentHashMap<Object, ArrayList<IEventListener>> listeners = new ConcurrentHashMap<Object, ArrayList<IEventListener>>();
+    private Map<Object,ModContainer> listenerOwners = new MapMaker().weakKeys().weakValues().makeMap();
+    private final int busID = maxID++;
+    private IEventExceptionHandler exceptionHandler;
+
+    public EventBus()
+    {
+        ListenerList.resize(busID + 1);
+        exceptionHandler = this;
+    }
+
+    public EventBus(@Nonnull IEventExceptionHandler handler)
+    {
+        this();
+        Preconditions.checkArgument(handler != null, "EventBus exception handler can not be null");
+        exceptionHandler = handler;
+    }
+
+    public void register(Object target)
+    {
+        if (listeners.containsKey(target))
+        {
+            return;
+        }
+
+        ModContainer activeModContainer = Loader.instance().activeModContainer();
+        if (activeModContainer == null)
+        {
+            FMLLog.log(Level.ERROR, new Throwable(), "Unable to determine registrant mod for %s. This is a critical error and should be impossible", target);
+            activeModContainer = Loader.instance().getMinecraftModContainer();
+        }
+        listenerOwners.put(target, activeModContainer);
+        Set<? extends Class<?>> supers = TypeToken.of(target.getClass()).getTypes().rawTypes();
+        for (Method method : target.getClass().getMethods())
+        {
+            for (Class<?> cls : supers)
+            {
+                try
+                {
+                    Method real = cls.getDeclaredMethod(method.getName(), method.getParameterTypes());
+                    if (real.isAnnotationPresent(SubscribeEvent.class))
+                    {
+                        Class<?>[] parameterTypes = method.getParameterTypes();
+                        if (parameterTypes.length != 1)
+                        {
+                            throw new IllegalArgumentException(
+                                "Method " + method + " has @SubscribeEvent annotation, but requires " + parameterTypes.length +
+                                " arguments.  Event handler methods must require a single argument."
+                            );
+                        }
+
+                        Class<?> eventType = parameterTypes[0];
+
+                        if (!Event.class.isAssignableFrom(eventType))
+                        {
+                            throw new IllegalArgumentException("Method " + method + " has @SubscribeEvent annotation, but takes a argument that is not an Event " + eventType);
+                        }
+
+                        register(eventType, target, method, activeModContainer);
+                        break;
+                    }
+                }
+                catch (NoSuchMethodException e)
+                {
+                    ;
+                }
+            }
+        }
+    }
+
+    private void register(Class<?> eventType, Object target, Method method, ModContainer owner)
+    {
+        try
+        {
+            ASMEventHandler listener = new ASMEventHandler(target, method, owner);
+            listener.bus = this;
+            getListenerList(eventType).register(busID, listener.getPriority(), listener);
+
+            ArrayList<IEventListener> others = listeners.get(target);
+            if (others == null)
+            {
+                others = new ArrayList<IEventListener>();
+                listeners.put(target, others);
+            }
+            others.add(listener);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the ListenerList shared by all instances of the specified event class.
+     * The list is looked up once by constructing a dummy instance and cached afterwards.
+     */
+    private static ListenerList getListenerList(Class<?> eventType) throws Exception
+    {
+        ListenerList list = eventLists.get(eventType);
+        if (list == null)
+        {
+            Constructor<?> ctr = eventType.getConstructor();
+            ctr.setAccessible(true);
+            Event event = (Event)ctr.newInstance();
+            list = event.getListenerList();
+            eventLists.putIfAbsent(eventType, list);
+        }
+        return list;
+    }
+
+    /**
+     * Determines if any listener on this bus would receive an event of the specified type,
+     * including listeners registered for any of its parent events.
+     *
+     * Hooks that fire very frequently can use this to skip constructing and posting the
+     * event entirely when nobody is listening.
+     *
+     * @param eventType The event class to check
+     * @return False only if posting an event of this type is guaranteed to be a no-op
+     */
+    public boolean hasListeners(Class<? extends Event> eventType)
+    {
+        try
+        {
+            return getListenerList(eventType).hasListeners(busID);
+        }
+        catch (Exception e)
+        {
+            // Can't resolve the list without an instance, assume someone is listening
+            return true;
+        }
+    }
+
+    public void unregister(Object object)
+    {
+        ArrayList<IEventListener> list = listeners.remove(object);
+        if (list == null)
+            return;
+        for (IEventListener listener : list)
+        {
+            ListenerList.unregisterAll(busID, listener);
+        }
+    }
+
+    public boolean post(Event event)
+    {
+        if (EventDispatcher.ENABLED)
+        {
+            return postCompiled(event);
+        }
+
+        IEventListener[] listeners = event.getListenerList().getListeners(busID);
+        int index = 0;
+        try
+        {
+            for (; index < listeners.length; index++)
+            {
+                listeners[index].invoke(event);
+            }
+        }
+        catch (Throwable throwable)
+        {
+            exceptionHandler.handleException(this, event, listeners, index, throwable);
+            Throwables.propagate(throwable);
+        }
+        return (event.isCancelable() ? event.isCanceled() : false);
+    }
+
+    private boolean postCompiled(Event event)
+    {
+        EventDispatcher dispatcher = event.getListenerList().getDispatcher(busID, event.getClass());
+        try
+        {
+            dispatcher.dispatch(event);
+        }
+        catch (EventDispatcher.DispatchException e)
+        {
+            exceptionHandler.handleException(this, event, dispatcher.listeners, e.index, e.getCause());
+            Throwables.propagate(e.getCause());
+        }
+        return (event.isCancelable() ? event.isCanceled() : false);
+    }
+
+    /**
+     * Reports an exception thrown by an asynchronous listener to this bus' exception handler.
+     * The event was posted long ago, so the exception is not propagated.
+     */
+    void handleAsyncException(Event event, IEventListener listener, Throwable throwable)
+    {
+        IEventListener[] listeners = event.getListenerList().getListeners(busID);
+        exceptionHandler.handleException(this, event, listeners, Arrays.asList(listeners).indexOf(listener), throwable);
+    }
+
+    @Override
+    public void handleException(EventBus bus, Event event, IEventListener[] listeners, int index, Throwable throwable)
+    {
+        FMLLog.log(Level.ERROR, throwable, "Exception caught during firing event %s:", event);
+        FMLLog.log(Level.ERROR, "Index: %d Listeners:", index);
+        for (int x = 0; x < listeners.length; x++)
+        {
+            FMLLog.log(Level.ERROR, "%d: %s", x, listeners[x]);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package cpw.mods.fml.common.eventhandler;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import java.lang.reflect.Method;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * A dispatcher invokes every listener of a single listener array in order.
+ *
+ * When enabled with -Dfml.compileEventDispatchers=true, one class is generated per
+ * listener array that calls each {@link ASMEventHandler} target method directly, with
+ * the phase changes and cancellation checks inlined. This replaces a megamorphic
+ * {@link IEventListener#invoke} call per listener with straight line code.
+ *
+ * Dispatchers are generated lazily on the first post after the listener array changed,
+ * see {@link ListenerList#getDispatcher(int, Class)}. Each one is defined in its own
+ * class loader, so a dispatcher replaced by a recompile is unloaded with its loader.
+ */
+public abstract class EventDispatcher
+{
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("fml.compileEventDispatchers", "false")) && !ASMEventHandler.GETCONTEXT;
+
+    private static final String DISPATCHER_DESC = Type.getInternalName(EventDispatcher.class);
+    private static final String LISTENER_DESC = Type.getInternalName(IEventListener.class);
+    private static final String EVENT_DESC = Type.getInternalName(Event.class);
+    private static final String PRIORITY_DESC = Type.getInternalName(EventPriority.class);
+    private static final String EXCEPTION_DESC = Type.getInternalName(DispatchException.class);
+    private static int IDs = 0;
+
+    final IEventListener[] listeners;
+
+    protected EventDispatcher(IEventListener[] listeners)
+    {
+        this.listeners = listeners;
+    }
+
+    /**
+     * Invokes all listeners with the specified event.
+     *
+     * @throws DispatchException wrapping anything thrown by a listener, with the index of that listener
+     */
+    public abstract void dispatch(Event event);
+
+    static EventDispatcher compile(IEventListener[] listeners, Class<?> eventType)
+    {
+        if (listeners.length == 0)
+        {
+            return new EventDispatcher(listeners)
+            {
+                @Override
+                public void dispatch(Event event){}
+            };
+        }
+
+        try
+        {
+            String name;
+            synchronized (EventDispatcher.class)
+            {
+                name = String.format("%s_%d_%s", EventDispatcher.class.getName(), IDs++, eventType.getSimpleName());
+            }
+            Object[] targets = new Object[listeners.length];
+            Class<?> cls = new DispatcherLoader().define(name, build(name, listeners, targets));
+            return (EventDispatcher)cls.getConstructor(IEventListener[].class, Object[].class).newInstance(listeners, targets);
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException("Could not compile event dispatcher for " + eventType.getName(), e);
+        }
+    }
+
+    private static byte[] build(String name, IEventListener[] listeners, Object[] targets)
+    {
+        String desc = name.replace('.', '/');
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        MethodVisitor mv;
+
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, desc, null, DISPATCHER_DESC, null);
+        cw.visitSource(".dynamic", null);
+
+        boolean checkCancel = false;
+        for (int x = 0; x < listeners.length; x++)
+        {
+            IEventListener listener = listeners[x];
+            if (listener instanceof EventPriority)
+            {
+                continue;
+            }
+            String fieldType;
+            if (isInlined(listener))
+            {
+                ASMEventHandler handler = (ASMEventHandler)listener;
+                targets[x] = handler.getTarget();
+                fieldType = Type.getDescriptor(handler.getMethod().getDeclaringClass());
+                checkCancel |= !handler.receiveCanceled();
+            }
+            else
+            {
+                targets[x] = listener;
+                fieldType = "L" + LISTENER_DESC + ";";
+            }
+            cw.visitField(ACC_PRIVATE | ACC_FINAL, "target" + x, fieldType, null, null).visitEnd();
+        }
+
+        {
+            mv = cw.visitMethod(ACC_PUBLIC, "<init>", "([L" + LISTENER_DESC + ";[Ljava/lang/Object;)V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKESPECIAL, DISPATCHER_DESC, "<init>", "([L" + LISTENER_DESC + ";)V", false);
+            for (int x = 0; x < listeners.length; x++)
+            {
+                if (targets[x] == null)
+                {
+                    continue;
+                }
+                String type = isInlined(listeners[x]) ? Type.getInternalName(((ASMEventHandler)listeners[x]).getMethod().getDeclaringClass()) : LISTENER_DESC;
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitLdcInsn(x);
+                mv.visitInsn(AALOAD);
+                mv.visitTypeInsn(CHECKCAST, type);
+                mv.visitFieldInsn(PUTFIELD, desc, "target" + x, "L" + type + ";");
+            }
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        {
+            // Locals: 0 this, 1 event, 2 current listener index, 3 event.isCancelable(), 4 caught throwable
+            mv = cw.visitMethod(ACC_PUBLIC, "dispatch", "(L" + EVENT_DESC + ";)V", null, null);
+            mv.visitCode();
+            Label start = new Label();
+            Label end = new Label();
+            Label handler = new Label();
+            mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ISTORE, 2);
+            if (checkCancel)
+            {
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitMethodInsn(INVOKEVIRTUAL, EVENT_DESC, "isCancelable", "()Z", false);
+                mv.visitVarInsn(ISTORE, 3);
+            }
+            mv.visitLabel(start);
+            for (int x = 0; x < listeners.length; x++)
+            {
+                IEventListener listener = listeners[x];
+                mv.visitLdcInsn(x);
+                mv.visitVarInsn(ISTORE, 2);
+
+                if (listener instanceof EventPriority)
+                {
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitFieldInsn(GETSTATIC, PRIORITY_DESC, ((EventPriority)listener).name(), "L" + PRIORITY_DESC + ";");
+                    mv.visitMethodInsn(INVOKEVIRTUAL, EVENT_DESC, "setPhase", "(L" + PRIORITY_DESC + ";)V", false);
+                }
+                else if (isInlined(listener))
+                {
+                    ASMEventHandler asm = (ASMEventHandler)listener;
+                    Method callback = asm.getMethod();
+                    String instType = Type.getInternalName(callback.getDeclaringClass());
+                    Label skip = new Label();
+                    if (!asm.receiveCanceled())
+                    {
+                        // if (cancelable && event.isCanceled()) skip;
+                        Label call = new Label();
+                        mv.visitVarInsn(ILOAD, 3);
+                        mv.visitJumpInsn(IFEQ, call);
+                        mv.visitVarInsn(ALOAD, 1);
+                        mv.visitMethodInsn(INVOKEVIRTUAL, EVENT_DESC, "isCanceled", "()Z", false);
+                        mv.visitJumpInsn(IFNE, skip);
+                        mv.visitLabel(call);
+                    }
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitFieldInsn(GETFIELD, desc, "target" + x, "L" + instType + ";");
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitTypeInsn(CHECKCAST, Type.getInternalName(callback.getParameterTypes()[0]));
+                    mv.visitMethodInsn(INVOKEVIRTUAL, instType, callback.getName(), Type.getMethodDescriptor(callback), false);
+                    int size = Type.getReturnType(callback).getSize();
+                    if (size == 1)
+                    {
+                        mv.visitInsn(POP);
+                    }
+                    else if (size == 2)
+                    {
+                        mv.visitInsn(POP2);
+                    }
+                    mv.visitLabel(skip);
+                }
+                else
+                {
+                    mv.visitVarInsn(ALOAD, 0);
+                    mv.visitFieldInsn(GETFIELD, desc, "target" + x, "L" + LISTENER_DESC + ";");
+                    mv.visitVarInsn(ALOAD, 1);
+                    mv.visitMethodInsn(INVOKEINTERFACE, LISTENER_DESC, "invoke", "(L" + EVENT_DESC + ";)V", true);
+                }
+            }
+            mv.visitLabel(end);
+            mv.visitInsn(RETURN);
+
+            mv.visitLabel(handler);
+            mv.visitVarInsn(ASTORE, 4);
+            mv.visitTypeInsn(NEW, EXCEPTION_DESC);
+            mv.visitInsn(DUP);
+            mv.visitVarInsn(ILOAD, 2);
+            mv.visitVarInsn(ALOAD, 4);
+            mv.visitMethodInsn(INVOKESPECIAL, EXCEPTION_DESC, "<init>", "(ILjava/lang/Throwable;)V", false);
+            mv.visitInsn(ATHROW);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Asynchronous listeners are called through {@link ASMEventHandler#invoke}, which hands them off to the {@link AsyncEventExecutor}.
+     */
+    private static boolean isInlined(IEventListener listener)
+    {
+        return listener instanceof ASMEventHandler && !((ASMEventHandler)listener).isAsync();
+    }
+
+    /**
+     * Holds a single dispatcher class. Its parent is the loader of the generated
+     * handlers, so the classes they call into resolve the same way.
+     */
+    private static class DispatcherLoader extends ClassLoader
+    {
+        private DispatcherLoader()
+        {
+            super(ASMEventHandler.LOADER);
+        }
+
+        Class<?> define(String name, byte[] data)
+        {
+            return defineClass(name, data, 0, data.length);
+        }
+    }
+
+    /**
+     * Thrown by compiled dispatchers when a listener throws, so the bus can still
+     * report which listener failed to its {@link IEventExceptionHandler}.
+     */
+    public static class DispatchException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+        public final int index;
+
+        public DispatchException(int index, Throwable cause)
+        {
+            super(cause);
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package cpw.mods.fml.common.eventhandler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+
+import cpw.mods.fml.common.ModContainer;
+
+/**
+ * Records call count, cumulative and maximum time spent in every event listener, on all buses.
+ *
+ * Profiling is off by default and costs nothing while off: enabling it rebuilds every
+ * listener cache with timing wrappers around each listener, disabling it rebuilds them
+ * with the plain listeners again.
+ */
+public class EventProfiler
+{
+    private static final Map<IEventListener, Stats> stats = new MapMaker().weakKeys().makeMap();
+    private static final com.sun.management.ThreadMXBean allocBean = getAllocationBean();
+    private static volatile boolean enabled = false;
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value)
+    {
+        if (enabled == value)
+        {
+            return;
+        }
+        enabled = value;
+        ListenerList.rebuildAll();
+    }
+
+    /**
+     * Clears all recorded data without changing the enabled state.
+     */
+    public static void reset()
+    {
+        for (Stats stat : stats.values())
+        {
+            stat.reset();
+        }
+    }
+
+    /**
+     * Returns the data recorded so far for every listener that was called at least once,
+     * sorted by cumulative time, highest first.
+     */
+    public static List<Snapshot> snapshot()
+    {
+        List<Snapshot> ret = new ArrayList<Snapshot>();
+        for (Map.Entry<IEventListener, Stats> entry : stats.entrySet())
+        {
+            Stats stat = entry.getValue();
+            if (stat.calls.get() > 0)
+            {
+                ret.add(new Snapshot(entry.getKey(), stat));
+            }
+        }
+        Collections.sort(ret, new Comparator<Snapshot>()
+        {
+            @Override
+            public int compare(Snapshot a, Snapshot b)
+            {
+                return a.totalNanos > b.totalNanos ? -1 : (a.totalNanos == b.totalNanos ? 0 : 1);
+            }
+        });
+        return ImmutableList.copyOf(ret);
+    }
+
+    static IEventListener wrap(IEventListener listener)
+    {
+        if (listener instanceof EventPriority)
+        {
+            return listener;
+        }
+        Stats stat = stats.get(listener);
+        if (stat == null)
+        {
+            stat = new Stats();
+            stats.put(listener, stat);
+        }
+        return new TimedListener(listener, stat);
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationBean()
+    {
+        try
+        {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)bean).isThreadAllocatedMemorySupported())
+            {
+                return (com.sun.management.ThreadMXBean)bean;
+            }
+        }
+        catch (Throwable e)
+        {
+            // Not a HotSpot VM, allocation tracking is unavailable
+        }
+        return null;
+    }
+
+    private static long allocatedBytes()
+    {
+        return allocBean == null ? 0 : allocBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class TimedListener implements IEventListener
+    {
+        private final IEventListener listener;
+        private final Stats stat;
+
+        private TimedListener(IEventListener listener, Stats stat)
+        {
+            this.listener = listener;
+            this.stat = stat;
+        }
+
+        @Override
+        public void invoke(Event event)
+        {
+            long alloc = allocatedBytes();
+            long start = System.nanoTime();
+            try
+            {
+                listener.invoke(event);
+            }
+            finally
+            {
+                stat.record(System.nanoTime() - start, allocatedBytes() - alloc);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return listener.toString();
+        }
+    }
+
+    private static class Stats
+    {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong allocated = new AtomicLong();
+
+        private void record(long nanos, long bytes)
+        {
+            calls.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            allocated.addAndGet(bytes);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+            {
+                max = maxNanos.get();
+            }
+        }
+
+        private void reset()
+        {
+            calls.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+            allocated.set(0);
+        }
+    }
+
+    /**
+     * Immutable copy of the data recorded for a single listener.
+     */
+    public static class Snapshot
+    {
+        public final String listener;
+        /**
+         * The mod that registered the listener, or null if it was not registered through {@link EventBus#register(Object)}.
+         */
+        public final ModContainer owner;
+        public final long calls;
+        public final long totalNanos;
+        public final long maxNanos;
+        /**
+         * Bytes allocated by the calling thread while inside the listener, 0 if the VM does not support measuring it.
+         */
+        public final long allocatedBytes;
+
+        private Snapshot(IEventListener listener, Stats stat)
+        {
+            this.listener = listener.toString();
+            this.owner = listener instanceof ASMEventHandler ? ((ASMEventHandler)listener).getOwner() : null;
+            this.calls = stat.calls.get();
+            this.totalNanos = stat.totalNanos.get();
+            this.maxNanos = stat.maxNanos.get();
+            this.allocatedBytes = stat.allocated.get();
+        }
+    }
+}
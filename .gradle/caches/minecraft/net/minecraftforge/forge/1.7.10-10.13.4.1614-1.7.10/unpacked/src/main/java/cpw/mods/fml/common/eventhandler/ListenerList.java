@@ -0,0 +1,351 @@
+package cpw.mods.fml.common.eventhandler;
+
+import java.util.*;
+import com.google.common.collect.ImmutableList;
+
+
+public class ListenerList
+{
+    /**
+     * Guards every mutation of the listener hierarchy. Posting never takes this lock,
+     * it only reads the cached listener arrays which are rebuilt eagerly under it.
+     */
+    private static final Object LOCK = new Object();
+    private static volatile ImmutableList<ListenerList> allLists = ImmutableList.of();
+    private static int maxSize = 0;
+
+    private ListenerList parent;
+    private volatile ListenerListInst[] lists = new ListenerListInst[0];
+
+    public ListenerList()
+    {
+        this(null);
+    }
+
+    public ListenerList(ListenerList parent)
+    {
+        // parent needs to be set before resize !
+        this.parent = parent;
+        extendMasterList(this);
+        resizeLists(maxSize);
+    }
+
+    private static void extendMasterList(ListenerList inst)
+    {
+        synchronized (LOCK)
+        {
+            ImmutableList.Builder<ListenerList> builder = ImmutableList.builder();
+            builder.addAll(allLists);
+            builder.add(inst);
+            allLists = builder.build();
+        }
+    }
+
+    public static void resize(int max)
+    {
+        synchronized (LOCK)
+        {
+            if (max <= maxSize)
+            {
+                return;
+            }
+            for (ListenerList list : allLists)
+            {
+                list.resizeLists(max);
+            }
+            maxSize = max;
+        }
+    }
+
+    public void resizeLists(int max)
+    {
+        synchronized (LOCK)
+        {
+            if (parent != null)
+            {
+                parent.resizeLists(max);
+            }
+
+            if (lists.length >= max)
+            {
+                return;
+            }
+
+            ListenerListInst[] newList = new ListenerListInst[max];
+            int x = 0;
+            for (; x < lists.length; x++)
+            {
+                newList[x] = lists[x];
+            }
+            for(; x < max; x++)
+            {
+                if (parent != null)
+                {
+                    newList[x] = new ListenerListInst(parent.getInstance(x));
+                }
+                else
+                {
+                    newList[x] = new ListenerListInst();
+                }
+            }
+            lists = newList;
+        }
+    }
+
+    /**
+     * Rebuilds the cached listener arrays of every list on every bus,
+     * used when the {@link EventProfiler} is turned on or off.
+     */
+    static void rebuildAll()
+    {
+        synchronized (LOCK)
+        {
+            for (ListenerList list : allLists)
+            {
+                for (ListenerListInst inst : list.lists)
+                {
+                    // Children are rebuilt by their parent, disposed lists have nothing to rebuild
+                    if (inst.parent == null && !inst.priorities.isEmpty())
+                    {
+                        inst.buildCache();
+                    }
+                }
+            }
+        }
+    }
+
+    public static void clearBusID(int id)
+    {
+        synchronized (LOCK)
+        {
+            for (ListenerList list : allLists)
+            {
+                list.lists[id].dispose();
+            }
+        }
+    }
+
+    protected ListenerListInst getInstance(int id)
+    {
+        return lists[id];
+    }
+
+    public IEventListener[] getListeners(int id)
+    {
+        return lists[id].getListeners();
+    }
+
+    /**
+     * Returns the compiled dispatcher for the current listeners on the specified bus,
+     * generating a new one if the listeners changed since it was last requested.
+     */
+    public EventDispatcher getDispatcher(int id, Class<?> eventType)
+    {
+        return lists[id].getDispatcher(eventType);
+    }
+
+    /**
+     * Returns true if any listener, including those registered for a parent event,
+     * is registered on the specified bus.
+     */
+    public boolean hasListeners(int id)
+    {
+        return lists[id].getListeners().length > 0;
+    }
+
+    public void register(int id, EventPriority priority, IEventListener listener)
+    {
+        lists[id].register(priority, listener);
+    }
+
+    public void unregister(int id, IEventListener listener)
+    {
+        lists[id].unregister(listener);
+    }
+
+    public static void unregisterAll(int id, IEventListener listener)
+    {
+        for (ListenerList list : allLists)
+        {
+            list.unregister(id, listener);
+        }
+    }
+
+    private class ListenerListInst
+    {
+        private volatile IEventListener[] listeners = new IEventListener[0];
+        private volatile EventDispatcher dispatcher;
+        private ArrayList<ArrayList<IEventListener>> priorities;
+        private ListenerListInst parent;
+        private List<ListenerListInst> children = new ArrayList<ListenerListInst>();
+
+        private ListenerListInst()
+        {
+            int count = EventPriority.values().length;
+            priorities = new ArrayList<ArrayList<IEventListener>>(count);
+
+            for (int x = 0; x < count; x++)
+            {
+                priorities.add(new ArrayList<IEventListener>());
+            }
+        }
+
+        public void dispose()
+        {
+            synchronized (LOCK)
+            {
+                for (ArrayList<IEventListener> listeners : priorities)
+                {
+                    listeners.clear();
+                }
+                priorities.clear();
+                if (parent != null)
+                {
+                    parent.children.remove(this);
+                }
+                parent = null;
+                children.clear();
+                listeners = new IEventListener[0];
+            }
+        }
+
+        private ListenerListInst(ListenerListInst parent)
+        {
+            this();
+            this.parent = parent;
+            synchronized (LOCK)
+            {
+                parent.children.add(this);
+                buildCache();
+            }
+        }
+
+        /**
+         * Returns a ArrayList containing all listeners for this event,
+         * and all parent events for the specified priority.
+         *
+         * The list is returned with the listeners for the children events first.
+         *
+         * @param priority The Priority to get
+         * @return ArrayList containing listeners
+         */
+        public ArrayList<IEventListener> getListeners(EventPriority priority)
+        {
+            synchronized (LOCK)
+            {
+                ArrayList<IEventListener> ret = new ArrayList<IEventListener>(priorities.get(priority.ordinal()));
+                if (parent != null)
+                {
+                    ret.addAll(parent.getListeners(priority));
+                }
+                return ret;
+            }
+        }
+
+        /**
+         * Returns a full list of all listeners for all priority levels.
+         * Including all parent listeners.
+         *
+         * List is returned in proper priority order.
+         *
+         * The returned array is an immutable snapshot, it is replaced as a whole
+         * whenever this list or any of its parents change, so it is safe to call
+         * from any thread without locking.
+         *
+         * @return Array containing listeners
+         */
+        public IEventListener[] getListeners()
+        {
+            return listeners;
+        }
+
+        /**
+         * Returns a dispatcher compiled for the current listener array. A stale dispatcher
+         * is detected by comparing its array to the current one, so no invalidation is needed
+         * when the cache is rebuilt. Compiling holds the lock, so concurrent posts of a
+         * stale list compile it once.
+         */
+        public EventDispatcher getDispatcher(Class<?> eventType)
+        {
+            EventDispatcher ret = dispatcher;
+            if (ret != null && ret.listeners == listeners)
+            {
+                return ret;
+            }
+            synchronized (LOCK)
+            {
+                IEventListener[] current = listeners;
+                ret = dispatcher;
+                if (ret == null || ret.listeners != current)
+                {
+                    ret = EventDispatcher.compile(current, eventType);
+                    dispatcher = ret;
+                }
+                return ret;
+            }
+        }
+
+        /**
+         * Rebuild the local Array of listeners and those of every child list.
+         * Must be called with the lock held.
+         */
+        private void buildCache()
+        {
+            boolean profile = EventProfiler.isEnabled();
+            ArrayList<IEventListener> ret = new ArrayList<IEventListener>();
+            for (EventPriority value : EventPriority.values())
+            {
+                List<IEventListener> listeners = getListeners(value);
+                if (listeners.size() > 0)
+                {
+                    ret.add(value); //Add the priority to notify the event of it's current phase.
+                    if (profile)
+                    {
+                        for (IEventListener listener : listeners)
+                        {
+                            ret.add(EventProfiler.wrap(listener));
+                        }
+                    }
+                    else
+                    {
+                        ret.addAll(listeners);
+                    }
+                }
+            }
+            listeners = ret.toArray(new IEventListener[ret.size()]);
+
+            for (ListenerListInst child : children)
+            {
+                child.buildCache();
+            }
+        }
+
+        public void register(EventPriority priority, IEventListener listener)
+        {
+            synchronized (LOCK)
+            {
+                priorities.get(priority.ordinal()).add(listener);
+                buildCache();
+            }
+        }
+
+        public void unregister(IEventListener listener)
+        {
+            synchronized (LOCK)
+            {
+                boolean rebuild = false;
+                for(ArrayList<IEventListener> list : priorities)
+                {
+                    if (list.remove(listener))
+                    {
+                        rebuild = true;
+                    }
+                }
+                if (rebuild)
+                {
+                    buildCache();
+                }
+            }
+        }
+    }
+}
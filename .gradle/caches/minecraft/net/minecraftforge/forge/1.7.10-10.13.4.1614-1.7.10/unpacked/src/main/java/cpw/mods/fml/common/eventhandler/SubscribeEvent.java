@@ -0,0 +1,22 @@
+package cpw.mods.fml.common.eventhandler;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.RetentionPolicy.*;
+import static java.lang.annotation.ElementType.*;
+
+@Retention(value = RUNTIME)
+@Target(value = METHOD)
+public @interface SubscribeEvent
+{
+    public EventPriority priority() default EventPriority.NORMAL;
+    public boolean receiveCanceled() default false;
+    /**
+     * Run this listener on a worker thread instead of the thread posting the event.
+     * Only honoured for events declared {@link Event.AsyncSafe}, other events, and {@link Cancelable} events and events that
+     * have a result, are always delivered synchronously.
+     * The listener must not touch world state, use {@link AsyncEventExecutor#onComplete(Runnable)} to hand work back to the tick thread.
+     */
+    public boolean async() default false;
+}
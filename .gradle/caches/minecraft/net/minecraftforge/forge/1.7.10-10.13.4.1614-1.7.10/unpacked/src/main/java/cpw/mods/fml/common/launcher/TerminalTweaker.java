@@ -0,0 +1,39 @@
+package cpw.mods.fml.common.launcher;
+
+import java.io.File;
+import java.util.List;
+import cpw.mods.fml.common.asm.transformers.TransformedClassCache;
+import net.minecraft.launchwrapper.ITweaker;
+import net.minecraft.launchwrapper.Launch;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+public final class TerminalTweaker implements ITweaker {
+    @Override
+    public void injectIntoClassLoader(LaunchClassLoader classLoader)
+    {
+        classLoader.registerTransformer("cpw.mods.fml.common.asm.transformers.TerminalTransformer");
+        // This is the last tweaker, every launch time transformer is registered now
+        if (TransformedClassCache.ENABLED)
+        {
+            TransformedClassCache.install(classLoader, Launch.minecraftHome);
+        }
+    }
+
+    @Override
+    public String getLaunchTarget()
+    {
+        return null;
+    }
+
+    @Override
+    public String[] getLaunchArguments()
+    {
+        return new String[0];
+    }
+
+    @Override
+    public void acceptOptions(List<String> args, File gameDir, File assetsDir, String profile)
+    {
+
+    }
+}
\ No newline at end of file
@@ -0,0 +1,268 @@
+package cpw.mods.fml.common.network;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.MathHelper;
+import net.minecraft.world.ChunkCoordIntPair;
+
+import com.google.common.collect.ImmutableList;
+
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.network.NetworkRegistry.TargetChunk;
+import cpw.mods.fml.common.network.NetworkRegistry.TargetPoint;
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import cpw.mods.fml.relauncher.Side;
+
+/**
+ * Groups the {@link NetworkDispatcher}s of connected players by dimension and chunk column, so the broadcast
+ * {@link FMLOutboundHandler.OutboundTarget}s only look at players near their target instead of the whole player list.
+ *
+ * The server thread rebuilds the index at the end of every server tick, and right away when a player logs in, logs out,
+ * respawns or changes dimension. Players may have moved since it was built, so lookups search {@link #SLACK} blocks
+ * further than requested and then check the players' current positions.
+ *
+ * Lookups are safe from any thread. Other threads only read the last index the server thread published, and never touch
+ * the server's player list or the world's player manager.
+ */
+public class PlayerTargetIndex
+{
+    static final int SLACK = 16;
+    private static final Index EMPTY = new Index(ImmutableList.<EntityPlayerMP>of(), null);
+    private static volatile boolean invalid = true;
+    private static volatile Index current;
+
+    /**
+     * Rebuilds the index. Called by {@link FMLCommonHandler} at the end of every server tick.
+     */
+    public static void rebuild()
+    {
+        rebuild(null);
+    }
+
+    /**
+     * Rebuilds the index after the player list changed. Called by {@link FMLCommonHandler} when the player list changes.
+     */
+    public static void invalidate()
+    {
+        invalidate(null);
+    }
+
+    /**
+     * Rebuilds the index without a player that is about to be removed from the player list.
+     */
+    public static void invalidate(EntityPlayer leaving)
+    {
+        invalid = true;
+        if (isServerThread())
+        {
+            rebuild(leaving);
+        }
+    }
+
+    static List<NetworkDispatcher> all()
+    {
+        return get().all;
+    }
+
+    static List<NetworkDispatcher> inDimension(int dimension)
+    {
+        Dimension dim = get().dimensions.get(dimension);
+        return dim == null ? ImmutableList.<NetworkDispatcher>of() : dim.dispatchers;
+    }
+
+    static List<NetworkDispatcher> aroundPoint(TargetPoint tp)
+    {
+        Dimension dim = get().dimensions.get(tp.dimension);
+        if (dim == null)
+        {
+            return ImmutableList.<NetworkDispatcher>of();
+        }
+        List<NetworkDispatcher> ret = new ArrayList<NetworkDispatcher>();
+        for (Entry entry : dim.near(tp.x, tp.z, tp.range))
+        {
+            EntityPlayerMP player = entry.player;
+            if (player.field_71093_bK == tp.dimension)
+            {
+                double d4 = tp.x - player.field_70165_t;
+                double d5 = tp.y - player.field_70163_u;
+                double d6 = tp.z - player.field_70161_v;
+
+                if (d4 * d4 + d5 * d5 + d6 * d6 < tp.range * tp.range)
+                {
+                    ret.add(entry.dispatcher);
+                }
+            }
+        }
+        return ret;
+    }
+
+    static List<NetworkDispatcher> trackingChunk(TargetChunk tc)
+    {
+        Dimension dim = get().dimensions.get(tc.dimension);
+        if (dim == null)
+        {
+            return ImmutableList.<NetworkDispatcher>of();
+        }
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        // A player watches chunks up to the view distance away from the chunk they are in
+        int viewDistance = server.func_71203_ab().func_72395_o();
+        double range = (viewDistance + 1) * 16 * 1.5D;
+        boolean serverThread = isServerThread();
+        List<NetworkDispatcher> ret = new ArrayList<NetworkDispatcher>();
+        for (Entry entry : dim.near(tc.chunkX * 16 + 8, tc.chunkZ * 16 + 8, range))
+        {
+            EntityPlayerMP player = entry.player;
+            if (player.field_71093_bK != tc.dimension)
+            {
+                continue;
+            }
+            if (serverThread)
+            {
+                if (player.func_71121_q().func_73040_p().func_72694_a(player, tc.chunkX, tc.chunkZ))
+                {
+                    ret.add(entry.dispatcher);
+                }
+            }
+            // The player manager isn't thread safe, approximate it with the view distance square around the player
+            else if (Math.abs((MathHelper.func_76128_c(player.field_70165_t) >> 4) - tc.chunkX) <= viewDistance &&
+                     Math.abs((MathHelper.func_76128_c(player.field_70161_v) >> 4) - tc.chunkZ) <= viewDistance)
+            {
+                ret.add(entry.dispatcher);
+            }
+        }
+        return ret;
+    }
+
+    private static Index get()
+    {
+        Index index = current;
+        if (!isServerThread())
+        {
+            // Only the server thread builds the index, use the last one it published
+            return index != null ? index : EMPTY;
+        }
+        return index == null || invalid ? rebuild(null) : index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized Index rebuild(EntityPlayer leaving)
+    {
+        MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+        Index index = server == null || server.func_71203_ab() == null ? EMPTY : new Index((List<EntityPlayerMP>)server.func_71203_ab().field_72404_b, leaving);
+        invalid = false;
+        current = index;
+        return index;
+    }
+
+    private static boolean isServerThread()
+    {
+        return FMLCommonHandler.instance().getEffectiveSide() == Side.SERVER;
+    }
+
+    private static class Index
+    {
+        private final List<NetworkDispatcher> all;
+        private final TIntObjectHashMap<Dimension> dimensions = new TIntObjectHashMap<Dimension>();
+
+        private Index(List<EntityPlayerMP> players, EntityPlayer leaving)
+        {
+            ImmutableList.Builder<NetworkDispatcher> builder = ImmutableList.<NetworkDispatcher>builder();
+            for (EntityPlayerMP player : players)
+            {
+                if (player == leaving)
+                {
+                    continue;
+                }
+                NetworkDispatcher dispatcher = player.field_71135_a.field_147371_a.channel().attr(NetworkDispatcher.FML_DISPATCHER).get();
+                // Null dispatchers may exist for fake players - skip them
+                if (dispatcher == null)
+                {
+                    continue;
+                }
+                builder.add(dispatcher);
+                Dimension dim = dimensions.get(player.field_71093_bK);
+                if (dim == null)
+                {
+                    dim = new Dimension();
+                    dimensions.put(player.field_71093_bK, dim);
+                }
+                dim.add(new Entry(player, dispatcher));
+            }
+            this.all = builder.build();
+            for (Dimension dim : dimensions.valueCollection())
+            {
+                dim.dispatchers = ImmutableList.copyOf(dim.dispatchers);
+            }
+        }
+    }
+
+    private static class Dimension
+    {
+        private final List<Entry> players = new ArrayList<Entry>();
+        private final TLongObjectHashMap<List<Entry>> columns = new TLongObjectHashMap<List<Entry>>();
+        private List<NetworkDispatcher> dispatchers = new ArrayList<NetworkDispatcher>();
+
+        private void add(Entry entry)
+        {
+            players.add(entry);
+            dispatchers.add(entry.dispatcher);
+            long key = ChunkCoordIntPair.func_77272_a(MathHelper.func_76128_c(entry.player.field_70165_t) >> 4, MathHelper.func_76128_c(entry.player.field_70161_v) >> 4);
+            List<Entry> column = columns.get(key);
+            if (column == null)
+            {
+                column = new ArrayList<Entry>(1);
+                columns.put(key, column);
+            }
+            column.add(entry);
+        }
+
+        /**
+         * All players that were within range, plus slack, of the position when the index was built, in no particular order.
+         */
+        private List<Entry> near(double x, double z, double range)
+        {
+            double reach = range + SLACK;
+            int minX = MathHelper.func_76128_c(x - reach) >> 4;
+            int maxX = MathHelper.func_76128_c(x + reach) >> 4;
+            int minZ = MathHelper.func_76128_c(z - reach) >> 4;
+            int maxZ = MathHelper.func_76128_c(z + reach) >> 4;
+            // Scanning every player is cheaper than probing more columns than there are players
+            if ((long)(maxX - minX + 1) * (maxZ - minZ + 1) > players.size())
+            {
+                return players;
+            }
+            List<Entry> ret = new ArrayList<Entry>();
+            for (int cx = minX; cx <= maxX; cx++)
+            {
+                for (int cz = minZ; cz <= maxZ; cz++)
+                {
+                    List<Entry> column = columns.get(ChunkCoordIntPair.func_77272_a(cx, cz));
+                    if (column != null)
+                    {
+                        ret.addAll(column);
+                    }
+                }
+            }
+            return ret;
+        }
+    }
+
+    private static class Entry
+    {
+        private final EntityPlayerMP player;
+        private final NetworkDispatcher dispatcher;
+
+        private Entry(EntityPlayerMP player, NetworkDispatcher dispatcher)
+        {
+            this.player = player;
+            this.dispatcher = dispatcher;
+        }
+    }
+}
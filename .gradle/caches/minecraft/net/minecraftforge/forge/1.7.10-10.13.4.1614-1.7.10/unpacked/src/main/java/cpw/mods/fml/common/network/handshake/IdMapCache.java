@@ -0,0 +1,221 @@
+package cpw.mods.fml.common.network.handshake;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AttributeKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.logging.log4j.Level;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.Loader;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.registry.GameData;
+
+/**
+ * Compact encoding and caching of the registry ID map sent during the handshake.
+ *
+ * The map is encoded sorted by name, with each name stored as the length of the prefix it shares with the previous name plus
+ * the remaining characters, and each ID as the zigzag encoded difference to the previous ID. The SHA-1 of that encoding
+ * identifies the map. The server encodes it once and reuses it for every login until the map changes.
+ *
+ * Clients keep the last encoding received from every server in fmlcache/ids, and announce its hash in their
+ * {@link FMLHandshakeMessage.ClientHello}. When it matches, the server only sends the hash back.
+ */
+class IdMapCache
+{
+    /**
+     * Server side: the hash of the ID map the client has cached for this server. Empty if it has none, null for clients
+     * predating the cache, which are sent a plain {@link FMLHandshakeMessage.ModIdData}.
+     */
+    static final AttributeKey<byte[]> CLIENT_HASH = new AttributeKey<byte[]>("fml:idCacheHash");
+    /**
+     * Client side: the cached encoding announced to the server.
+     */
+    static final AttributeKey<byte[]> CACHED_PAYLOAD = new AttributeKey<byte[]>("fml:idCachePayload");
+    private static final byte[] NONE = new byte[0];
+
+    private static GameData.GameDataSnapshot serverSnapshot;
+    private static byte[] serverPayload;
+    private static byte[] serverHash;
+
+    /**
+     * Builds the message for a client that announced the specified hash.
+     */
+    static synchronized FMLHandshakeMessage.CachedModIdData serverMessage(GameData.GameDataSnapshot snapshot, byte[] clientHash)
+    {
+        if (serverSnapshot == null || !serverSnapshot.idMap.equals(snapshot.idMap) || !serverSnapshot.blockSubstitutions.equals(snapshot.blockSubstitutions) || !serverSnapshot.itemSubstitutions.equals(snapshot.itemSubstitutions))
+        {
+            serverSnapshot = snapshot;
+            serverPayload = encode(snapshot);
+            serverHash = hash(serverPayload);
+        }
+        return new FMLHandshakeMessage.CachedModIdData(serverHash, Arrays.equals(serverHash, clientHash) ? null : serverPayload);
+    }
+
+    /**
+     * Loads the cached encoding for the server this client is connecting to, and returns its hash for the {@link FMLHandshakeMessage.ClientHello}.
+     */
+    static byte[] clientHash(ChannelHandlerContext ctx)
+    {
+        File file = cacheFile(ctx);
+        if (file == null || !file.isFile())
+        {
+            return NONE;
+        }
+        try
+        {
+            byte[] payload = Files.toByteArray(file);
+            ctx.channel().attr(CACHED_PAYLOAD).set(payload);
+            return hash(payload);
+        }
+        catch (IOException e)
+        {
+            FMLLog.log(Level.WARN, e, "Unable to read the cached ID map %s", file);
+            return NONE;
+        }
+    }
+
+    /**
+     * Resolves the ID map the server sent, from the message itself or from the cache, and caches a newly sent one.
+     *
+     * @return the ID map, or null if the server referred to a cached map this client doesn't have
+     */
+    static GameData.GameDataSnapshot clientReceive(ChannelHandlerContext ctx, FMLHandshakeMessage.CachedModIdData msg)
+    {
+        byte[] payload = msg.payload();
+        if (payload == null)
+        {
+            payload = ctx.channel().attr(CACHED_PAYLOAD).getAndRemove();
+            if (payload == null || !Arrays.equals(hash(payload), msg.hash()))
+            {
+                return null;
+            }
+            FMLLog.fine("Using the cached ID map for this server");
+            return decode(payload);
+        }
+        ctx.channel().attr(CACHED_PAYLOAD).remove();
+        File file = cacheFile(ctx);
+        if (file != null)
+        {
+            try
+            {
+                Files.createParentDirs(file);
+                Files.write(payload, file);
+            }
+            catch (IOException e)
+            {
+                FMLLog.log(Level.WARN, e, "Unable to cache the ID map in %s", file);
+            }
+        }
+        return decode(payload);
+    }
+
+    private static File cacheFile(ChannelHandlerContext ctx)
+    {
+        NetworkDispatcher dispatcher = ctx.channel().attr(NetworkDispatcher.FML_DISPATCHER).get();
+        SocketAddress address = dispatcher == null ? null : dispatcher.manager.func_74430_c();
+        if (address == null)
+        {
+            return null;
+        }
+        String name = Hashing.sha1().hashString(address.toString(), Charsets.UTF_8).toString();
+        return new File(Loader.instance().getConfigDir().getParentFile(), "fmlcache/ids/" + name + ".bin");
+    }
+
+    private static byte[] hash(byte[] payload)
+    {
+        return Hashing.sha1().hashBytes(payload).asBytes();
+    }
+
+    static byte[] encode(GameData.GameDataSnapshot snapshot)
+    {
+        ByteBuf buffer = Unpooled.buffer(snapshot.idMap.size() * 8);
+        ByteBufUtils.writeVarInt(buffer, snapshot.idMap.size(), 3);
+        String last = "";
+        int lastId = 0;
+        for (Map.Entry<String, Integer> entry : new TreeMap<String, Integer>(snapshot.idMap).entrySet())
+        {
+            String name = entry.getKey();
+            int prefix = 0;
+            int max = Math.min(name.length(), last.length());
+            while (prefix < max && name.charAt(prefix) == last.charAt(prefix))
+            {
+                prefix++;
+            }
+            // Don't split a surrogate pair between the prefix and the suffix
+            if (prefix > 0 && Character.isHighSurrogate(name.charAt(prefix - 1)))
+            {
+                prefix--;
+            }
+            ByteBufUtils.writeVarInt(buffer, prefix, 3);
+            ByteBufUtils.writeUTF8String(buffer, name.substring(prefix));
+            int delta = entry.getValue() - lastId;
+            ByteBufUtils.writeVarInt(buffer, (delta << 1) ^ (delta >> 31), 5);
+            last = name;
+            lastId = entry.getValue();
+        }
+        writeSet(buffer, snapshot.blockSubstitutions);
+        writeSet(buffer, snapshot.itemSubstitutions);
+        byte[] data = new byte[buffer.readableBytes()];
+        buffer.readBytes(data);
+        return data;
+    }
+
+    static GameData.GameDataSnapshot decode(byte[] payload)
+    {
+        ByteBuf buffer = Unpooled.wrappedBuffer(payload);
+        int length = ByteBufUtils.readVarInt(buffer, 3);
+        Map<String, Integer> idMap = Maps.newHashMapWithExpectedSize(length);
+        String last = "";
+        int lastId = 0;
+        for (int i = 0; i < length; i++)
+        {
+            int prefix = ByteBufUtils.readVarInt(buffer, 3);
+            String name = last.substring(0, prefix) + ByteBufUtils.readUTF8String(buffer);
+            int zigzag = ByteBufUtils.readVarInt(buffer, 5);
+            int id = lastId + ((zigzag >>> 1) ^ -(zigzag & 1));
+            idMap.put(name, id);
+            last = name;
+            lastId = id;
+        }
+        Set<String> blockSubs = readSet(buffer);
+        Set<String> itemSubs = readSet(buffer);
+        return new GameData.GameDataSnapshot(idMap, blockSubs, itemSubs);
+    }
+
+    private static void writeSet(ByteBuf buffer, Set<String> set)
+    {
+        ByteBufUtils.writeVarInt(buffer, set.size(), 3);
+        for (String entry : new TreeSet<String>(set))
+        {
+            ByteBufUtils.writeUTF8String(buffer, entry);
+        }
+    }
+
+    private static Set<String> readSet(ByteBuf buffer)
+    {
+        int length = ByteBufUtils.readVarInt(buffer, 3);
+        Set<String> set = Sets.newHashSet();
+        for (int i = 0; i < length; i++)
+        {
+            set.add(ByteBufUtils.readUTF8String(buffer));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,707 @@
+package cpw.mods.fml.common.network.handshake;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandler;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.EnumConnectionState;
+import net.minecraft.network.INetHandler;
+import net.minecraft.network.NetHandlerPlayServer;
+import net.minecraft.network.NetworkManager;
+import net.minecraft.network.Packet;
+import net.minecraft.network.play.client.C17PacketCustomPayload;
+import net.minecraft.network.play.server.S01PacketJoinGame;
+import net.minecraft.network.play.server.S3FPacketCustomPayload;
+import net.minecraft.network.play.server.S40PacketDisconnect;
+import net.minecraft.server.management.ServerConfigurationManager;
+import net.minecraft.util.ChatComponentText;
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.network.ByteBufUtils;
+import cpw.mods.fml.common.network.FMLNetworkEvent;
+import cpw.mods.fml.common.network.FMLNetworkException;
+import cpw.mods.fml.common.network.FMLOutboundHandler;
+import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.internal.FMLMessage;
+import cpw.mods.fml.common.network.internal.FMLNetworkHandler;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+import cpw.mods.fml.relauncher.Side;
+
+public class NetworkDispatcher extends SimpleChannelInboundHandler<Packet> implements ChannelOutboundHandler {
+    private static enum ConnectionState {
+        OPENING, AWAITING_HANDSHAKE, HANDSHAKING, HANDSHAKECOMPLETE, CONNECTED;
+    }
+
+    private static enum ConnectionType {
+        MODDED, BUKKIT, VANILLA;
+    }
+
+    public static NetworkDispatcher get(NetworkManager manager)
+    {
+        return manager.channel().attr(FML_DISPATCHER).get();
+    }
+
+    public static NetworkDispatcher allocAndSet(NetworkManager manager)
+    {
+        NetworkDispatcher net = new NetworkDispatcher(manager);
+        manager.channel().attr(FML_DISPATCHER).getAndSet(net);
+        return net;
+    }
+
+    public static NetworkDispatcher allocAndSet(NetworkManager manager, ServerConfigurationManager scm)
+    {
+        NetworkDispatcher net = new NetworkDispatcher(manager, scm);
+        manager.channel().attr(FML_DISPATCHER).getAndSet(net);
+        return net;
+    }
+
+    /**
+     * Channel carrying several small custom payloads in one packet. Both sides list it in their REGISTER
+     * salutation, and bundles are only sent to a remote that did.
+     */
+    public static final String BUNDLE_CHANNEL = "FML|BN";
+    /**
+     * When set, packets sent through {@link #sendProxy(FMLProxyPacket)} on a connected channel are held until
+     * the end of the tick and then written with a single flush per connection.
+     */
+    private static final boolean BATCH = Boolean.parseBoolean(System.getProperty("fml.batchPackets", "false"));
+    /**
+     * When set in addition to batching, consecutive small payloads of a batch are packed into {@link #BUNDLE_CHANNEL} packets.
+     */
+    private static final boolean BUNDLE = BATCH && Boolean.parseBoolean(System.getProperty("fml.bundlePackets", "true"));
+    private static final int BUNDLE_ENTRY_LIMIT = 1024;
+    // The vanilla custom payload packets write their length as a short
+    private static final int BUNDLE_SIZE_LIMIT = 32000;
+    private static final Set<NetworkDispatcher> pendingDispatchers = Collections.newSetFromMap(new ConcurrentHashMap<NetworkDispatcher, Boolean>());
+
+    public static final AttributeKey<NetworkDispatcher> FML_DISPATCHER = new AttributeKey<NetworkDispatcher>("fml:dispatcher");
+    public static final AttributeKey<Boolean> IS_LOCAL = new AttributeKey<Boolean>("fml:isLocal");
+    public final NetworkManager manager;
+    private final ServerConfigurationManager scm;
+    private EntityPlayerMP player;
+    private ConnectionState state;
+    private ConnectionType connectionType;
+    private final Side side;
+    private final EmbeddedChannel handshakeChannel;
+    private NetHandlerPlayServer serverHandler;
+    private INetHandler netHandler;
+    private int overrideLoginDim;
+    private final ConcurrentLinkedQueue<FMLProxyPacket> pending = new ConcurrentLinkedQueue<FMLProxyPacket>();
+    private volatile boolean remoteBundles;
+
+    public NetworkDispatcher(NetworkManager manager)
+    {
+        super(Packet.class, false);
+        this.manager = manager;
+        this.scm = null;
+        this.side = Side.CLIENT;
+        this.handshakeChannel = new EmbeddedChannel(new HandshakeInjector(this), new ChannelRegistrationHandler(), new FMLHandshakeCodec(), new HandshakeMessageHandler<FMLHandshakeClientState>(FMLHandshakeClientState.class));
+        this.handshakeChannel.attr(FML_DISPATCHER).set(this);
+        this.handshakeChannel.attr(NetworkRegistry.CHANNEL_SOURCE).set(Side.SERVER);
+        this.handshakeChannel.attr(NetworkRegistry.FML_CHANNEL).set("FML|HS");
+        this.handshakeChannel.attr(IS_LOCAL).set(manager.func_150731_c());
+    }
+
+    public NetworkDispatcher(NetworkManager manager, ServerConfigurationManager scm)
+    {
+        super(Packet.class, false);
+        this.manager = manager;
+        this.scm = scm;
+        this.side = Side.SERVER;
+        this.handshakeChannel = new EmbeddedChannel(new HandshakeInjector(this), new ChannelRegistrationHandler(), new FMLHandshakeCodec(), new HandshakeMessageHandler<FMLHandshakeServerState>(FMLHandshakeServerState.class));
+        this.handshakeChannel.attr(FML_DISPATCHER).set(this);
+        this.handshakeChannel.attr(NetworkRegistry.CHANNEL_SOURCE).set(Side.CLIENT);
+        this.handshakeChannel.attr(NetworkRegistry.FML_CHANNEL).set("FML|HS");
+        this.handshakeChannel.attr(IS_LOCAL).set(manager.func_150731_c());
+    }
+
+    public void serverToClientHandshake(EntityPlayerMP player)
+    {
+        this.player = player;
+        insertIntoChannel();
+    }
+
+    private void insertIntoChannel()
+    {
+        this.manager.channel().config().setAutoRead(false);
+        // Insert ourselves into the pipeline
+        this.manager.channel().pipeline().addBefore("packet_handler", "fml:packet_handler", this);
+    }
+
+    public void clientToServerHandshake()
+    {
+        insertIntoChannel();
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception
+    {
+        this.state = ConnectionState.OPENING;
+        // send ourselves as a user event, to kick the pipeline active
+        this.handshakeChannel.pipeline().fireUserEventTriggered(this);
+        this.manager.channel().config().setAutoRead(true);
+    }
+
+    int serverInitiateHandshake()
+    {
+        // Send mod salutation to the client
+        // This will be ignored by vanilla clients
+        this.state = ConnectionState.AWAITING_HANDSHAKE;
+        this.manager.channel().pipeline().addFirst("fml:vanilla_detector", new VanillaTimeoutWaiter());
+        // Need to start the handler here, so we can send custompayload packets
+        serverHandler = new NetHandlerPlayServer(scm.func_72365_p(), manager, player);
+        this.netHandler = serverHandler;
+        // NULL the play server here - we restore it further on. If not, there are packets sent before the login
+        player.field_71135_a = null;
+        // manually for the manager into the PLAY state, so we can send packets later
+        this.manager.func_150723_a(EnumConnectionState.PLAY);
+
+        // Return the dimension the player is in, so it can be pre-sent to the client in the ServerHello v2 packet
+        // Requires some hackery to the serverconfigmanager and stuff for this to work
+        NBTTagCompound playerNBT = scm.getPlayerNBT(player);
+        if (playerNBT!=null)
+        {
+            return playerNBT.func_74762_e("Dimension");
+        }
+        else
+        {
+            return 0;
+        }
+    }
+
+    void clientListenForServerHandshake()
+    {
+        manager.func_150723_a(EnumConnectionState.PLAY);
+        FMLCommonHandler.instance().waitForPlayClient();
+        this.netHandler = FMLCommonHandler.instance().getClientPlayHandler();
+        this.state = ConnectionState.AWAITING_HANDSHAKE;
+    }
+
+    private void completeClientSideConnection(ConnectionType type)
+    {
+        this.connectionType = type;
+        FMLLog.info("[%s] Client side %s connection established", Thread.currentThread().getName(), this.connectionType.name().toLowerCase(Locale.ENGLISH));
+        this.state = ConnectionState.CONNECTED;
+        FMLCommonHandler.instance().bus().post(new FMLNetworkEvent.ClientConnectedToServerEvent(manager, this.connectionType.name()));
+    }
+
+    private void completeServerSideConnection(ConnectionType type)
+    {
+        this.connectionType = type;
+        FMLLog.info("[%s] Server side %s connection established", Thread.currentThread().getName(), this.connectionType.name().toLowerCase(Locale.ENGLISH));
+        this.state = ConnectionState.CONNECTED;
+        FMLCommonHandler.instance().bus().post(new FMLNetworkEvent.ServerConnectionFromClientEvent(manager));
+        scm.func_72355_a(manager, player, serverHandler);
+    }
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, Packet msg) throws Exception
+    {
+        boolean handled = false;
+        if (msg instanceof C17PacketCustomPayload)
+        {
+            handled = handleServerSideCustomPacket((C17PacketCustomPayload) msg, ctx);
+        }
+        else if (msg instanceof S3FPacketCustomPayload)
+        {
+            handled = handleClientSideCustomPacket((S3FPacketCustomPayload)msg, ctx);
+        }
+        else if (state != ConnectionState.CONNECTED && state != ConnectionState.HANDSHAKECOMPLETE)
+        {
+            handled = handleVanilla(msg);
+        }
+        if (!handled)
+        {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    private boolean handleVanilla(Packet msg)
+    {
+        if (state == ConnectionState.AWAITING_HANDSHAKE && msg instanceof S01PacketJoinGame)
+        {
+            handshakeChannel.pipeline().fireUserEventTriggered(msg);
+        }
+        else
+        {
+            FMLLog.info("Unexpected packet during modded negotiation - assuming vanilla or keepalives : %s", msg.getClass().getName());
+        }
+        return false;
+    }
+
+    public INetHandler getNetHandler()
+    {
+        return netHandler;
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception
+    {
+        if (evt instanceof ConnectionType && side == Side.SERVER)
+        {
+            FMLLog.info("Timeout occurred, assuming a vanilla client");
+            kickVanilla();
+        }
+    }
+
+    private void kickVanilla()
+    {
+        kickWithMessage("This is modded. No modded response received. Bye!");
+    }
+    private void kickWithMessage(String message)
+    {
+        final ChatComponentText chatcomponenttext = new ChatComponentText(message);
+        if (side == Side.CLIENT)
+        {
+            manager.func_150718_a(chatcomponenttext);
+        }
+        else
+        {
+            manager.func_150725_a(new S40PacketDisconnect(chatcomponenttext), new GenericFutureListener<Future<?>>()
+            {
+                @Override
+                public void operationComplete(Future<?> result)
+                {
+                    manager.func_150718_a(chatcomponenttext);
+                }
+            });
+        }
+        manager.channel().config().setAutoRead(false);
+    }
+
+    private boolean handleClientSideCustomPacket(S3FPacketCustomPayload msg, ChannelHandlerContext context)
+    {
+        String channelName = msg.func_149169_c();
+        if ("FML|HS".equals(channelName) || "REGISTER".equals(channelName) || "UNREGISTER".equals(channelName))
+        {
+            FMLProxyPacket proxy = new FMLProxyPacket(msg);
+            proxy.setDispatcher(this);
+            handshakeChannel.writeInbound(proxy);
+            // forward any messages into the regular channel
+            for (Object push : handshakeChannel.inboundMessages())
+            {
+                List<FMLProxyPacket> messageResult = FMLNetworkHandler.forwardHandshake((FMLMessage.CompleteHandshake)push, this, Side.CLIENT);
+                for (FMLProxyPacket result: messageResult)
+                {
+                    result.setTarget(Side.CLIENT);
+                    result.payload().resetReaderIndex();
+                    context.fireChannelRead(result);
+                }
+            }
+            handshakeChannel.inboundMessages().clear();
+            return true;
+        }
+        else if (BUNDLE_CHANNEL.equals(channelName))
+        {
+            unbundle(Unpooled.wrappedBuffer(msg.func_149168_d()), context, Side.CLIENT);
+            return true;
+        }
+        else if (NetworkRegistry.INSTANCE.hasChannel(channelName, Side.CLIENT))
+        {
+            FMLProxyPacket proxy = new FMLProxyPacket(msg);
+            proxy.setDispatcher(this);
+            context.fireChannelRead(proxy);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean handleServerSideCustomPacket(C17PacketCustomPayload msg, ChannelHandlerContext context)
+    {
+        if (state == ConnectionState.AWAITING_HANDSHAKE)
+        {
+            this.manager.channel().pipeline().remove("fml:vanilla_detector");
+            state = ConnectionState.HANDSHAKING;
+        }
+        String channelName = msg.func_149559_c();
+        if ("FML|HS".equals(channelName) || "REGISTER".equals(channelName) || "UNREGISTER".equals(channelName))
+        {
+            FMLProxyPacket proxy = new FMLProxyPacket(msg);
+            proxy.setDispatcher(this);
+            handshakeChannel.writeInbound(proxy);
+            for (Object push : handshakeChannel.inboundMessages())
+            {
+                List<FMLProxyPacket> messageResult = FMLNetworkHandler.forwardHandshake((FMLMessage.CompleteHandshake)push, this, Side.SERVER);
+                for (FMLProxyPacket result: messageResult)
+                {
+                    result.setTarget(Side.SERVER);
+                    result.payload().resetReaderIndex();
+                    context.fireChannelRead(result);
+                }
+            }
+            handshakeChannel.inboundMessages().clear();
+            return true;
+        }
+        else if (BUNDLE_CHANNEL.equals(channelName))
+        {
+            unbundle(Unpooled.wrappedBuffer(msg.func_149558_e()), context, Side.SERVER);
+            return true;
+        }
+        else if (NetworkRegistry.INSTANCE.hasChannel(channelName, Side.SERVER))
+        {
+            FMLProxyPacket proxy = new FMLProxyPacket(msg);
+            proxy.setDispatcher(this);
+            context.fireChannelRead(proxy);
+            return true;
+        }
+        return false;
+    }
+
+    private class VanillaTimeoutWaiter extends ChannelInboundHandlerAdapter
+    {
+        private ScheduledFuture<Void> future;
+
+        @Override
+        public void handlerAdded(final ChannelHandlerContext ctx) throws Exception
+        {
+            future = ctx.executor().schedule(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception
+                {
+                    if (state != ConnectionState.CONNECTED)
+                    {
+                        FMLLog.info("Timeout occurred waiting for response, assuming vanilla connection");
+                        ctx.fireUserEventTriggered(ConnectionType.VANILLA);
+                    }
+                    return null;
+                }
+            }, 10, TimeUnit.HOURS);
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) throws Exception
+        {
+            future.cancel(true);
+        }
+    }
+
+    public void sendProxy(FMLProxyPacket msg)
+    {
+        if (BATCH && state == ConnectionState.CONNECTED && !isHandshakeChannel(msg.channel()))
+        {
+            pending.add(msg);
+            pendingDispatchers.add(this);
+            return;
+        }
+        manager.func_150725_a(msg);
+    }
+
+    /**
+     * Writes the packets batched on every connection since the last call, with one flush per connection.
+     * Called at the end of each client and server tick.
+     */
+    public static void flushPending()
+    {
+        if (!BATCH)
+        {
+            return;
+        }
+        for (Iterator<NetworkDispatcher> it = pendingDispatchers.iterator(); it.hasNext();)
+        {
+            NetworkDispatcher dispatcher = it.next();
+            it.remove();
+            dispatcher.flushBatch();
+        }
+    }
+
+    private void flushBatch()
+    {
+        final Channel channel = manager.channel();
+        if (channel == null || !channel.isOpen())
+        {
+            pending.clear();
+            return;
+        }
+        if (channel.eventLoop().inEventLoop())
+        {
+            writeBatch(channel);
+        }
+        else
+        {
+            channel.eventLoop().execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    writeBatch(channel);
+                }
+            });
+        }
+    }
+
+    private void writeBatch(Channel channel)
+    {
+        ByteBuf bundle = null;
+        FMLProxyPacket first = null;
+        int count = 0;
+        FMLProxyPacket msg;
+        while ((msg = pending.poll()) != null)
+        {
+            int size = msg.payload().writerIndex();
+            if (!BUNDLE || !remoteBundles || size > BUNDLE_ENTRY_LIMIT)
+            {
+                writeBundle(channel, first, bundle, count);
+                bundle = null;
+                first = null;
+                count = 0;
+                channel.write(msg);
+                continue;
+            }
+            int entry = ByteBufUtils.varIntByteCount(size) + size + msg.channel().length() * 3 + 5;
+            if (bundle != null && bundle.writerIndex() + entry > BUNDLE_SIZE_LIMIT)
+            {
+                writeBundle(channel, first, bundle, count);
+                bundle = null;
+                first = null;
+                count = 0;
+            }
+            if (count == 0)
+            {
+                first = msg;
+            }
+            else
+            {
+                if (bundle == null)
+                {
+                    bundle = Unpooled.buffer(BUNDLE_SIZE_LIMIT / 8);
+                    appendToBundle(bundle, first);
+                }
+                appendToBundle(bundle, msg);
+            }
+            count++;
+        }
+        writeBundle(channel, first, bundle, count);
+        channel.flush();
+    }
+
+    private static void appendToBundle(ByteBuf bundle, FMLProxyPacket msg)
+    {
+        ByteBuf payload = msg.payload();
+        ByteBufUtils.writeUTF8String(bundle, msg.channel());
+        ByteBufUtils.writeVarInt(bundle, payload.writerIndex(), 3);
+        bundle.writeBytes(payload, 0, payload.writerIndex());
+    }
+
+    private static void writeBundle(Channel channel, FMLProxyPacket first, ByteBuf bundle, int count)
+    {
+        if (count == 1)
+        {
+            channel.write(first);
+        }
+        else if (count > 1)
+        {
+            channel.write(new FMLProxyPacket(bundle, BUNDLE_CHANNEL));
+        }
+    }
+
+    /**
+     * Splits a {@link #BUNDLE_CHANNEL} payload back into its packets and hands each one on as if it arrived on its own.
+     */
+    private void unbundle(ByteBuf data, ChannelHandlerContext context, Side target)
+    {
+        while (data.isReadable())
+        {
+            String channelName = ByteBufUtils.readUTF8String(data);
+            int length = ByteBufUtils.readVarInt(data, 3);
+            if (!NetworkRegistry.INSTANCE.hasChannel(channelName, target))
+            {
+                data.skipBytes(length);
+            }
+            else
+            {
+                // Handlers may keep or queue the payload past this packet, so it can't share the bundle's buffer
+                ByteBuf payload = Unpooled.copiedBuffer(data.readSlice(length));
+                FMLProxyPacket proxy = new FMLProxyPacket(payload, channelName);
+                proxy.setTarget(target);
+                proxy.setDispatcher(this);
+                context.fireChannelRead(proxy);
+            }
+        }
+    }
+
+    private static boolean isHandshakeChannel(String channelName)
+    {
+        return "FML|HS".equals(channelName) || "REGISTER".equals(channelName) || "UNREGISTER".equals(channelName);
+    }
+
+    void setRemoteBundles(boolean remoteBundles)
+    {
+        this.remoteBundles = remoteBundles;
+    }
+
+    public void rejectHandshake(String result)
+    {
+        kickWithMessage(result);
+    }
+
+    @Override
+    public void bind(ChannelHandlerContext ctx, SocketAddress localAddress, ChannelPromise promise) throws Exception
+    {
+        ctx.bind(localAddress, promise);
+    }
+
+    @Override
+    public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress, SocketAddress localAddress, ChannelPromise promise) throws Exception
+    {
+        ctx.connect(remoteAddress, localAddress, promise);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception
+    {
+        if (side == Side.CLIENT)
+        {
+            FMLCommonHandler.instance().bus().post(new FMLNetworkEvent.ClientDisconnectionFromServerEvent(manager));
+        }
+        else
+        {
+            FMLCommonHandler.instance().bus().post(new FMLNetworkEvent.ServerDisconnectionFromClientEvent(manager));
+        }
+        discardPending();
+        cleanAttributes(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception
+    {
+        if (side == Side.CLIENT)
+        {
+            FMLCommonHandler.instance().bus().post(new FMLNetworkEvent.ClientDisconnectionFromServerEvent(manager));
+        }
+        else
+        {
+            FMLCommonHandler.instance().bus().post(new FMLNetworkEvent.ServerDisconnectionFromClientEvent(manager));
+        }
+        discardPending();
+        cleanAttributes(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    @Deprecated
+    public void deregister(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception
+    {
+        ctx.deregister(promise);
+    }
+
+    @Override
+    public void read(ChannelHandlerContext ctx) throws Exception
+    {
+        ctx.read();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception
+    {
+        if (msg instanceof FMLProxyPacket)
+        {
+            if (side == Side.CLIENT)
+                ctx.write(((FMLProxyPacket) msg).toC17Packet(), promise);
+            else
+                ctx.write(((FMLProxyPacket) msg).toS3FPacket(), promise);
+        }
+        else
+        {
+            ctx.write(msg, promise);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception
+    {
+        ctx.flush();
+    }
+
+    public void completeHandshake(Side target)
+    {
+        if (state == ConnectionState.CONNECTED)
+        {
+            FMLLog.severe("Attempt to double complete the network connection!");
+            throw new FMLNetworkException("Attempt to double complete!");
+        }
+        if (side == Side.CLIENT)
+        {
+            completeClientSideConnection(ConnectionType.MODDED);
+        }
+        else
+        {
+            completeServerSideConnection(ConnectionType.MODDED);
+        }
+    }
+
+    public void completeClientHandshake()
+    {
+        state = ConnectionState.HANDSHAKECOMPLETE;
+    }
+
+    public void abortClientHandshake(String type)
+    {
+        FMLLog.log(Level.INFO, "Aborting client handshake \"%s\"", type);
+        FMLCommonHandler.instance().waitForPlayClient();
+        completeClientSideConnection(ConnectionType.valueOf(type));
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception
+    {
+        // Stop the epic channel closed spam at close
+        if (!(cause instanceof ClosedChannelException))
+        {
+            FMLLog.log(Level.ERROR, cause, "NetworkDispatcher exception");
+        }
+        super.exceptionCaught(ctx, cause);
+    }
+
+    private void discardPending()
+    {
+        pendingDispatchers.remove(this);
+        pending.clear();
+    }
+
+    // if we add any attributes, we should force removal of them here so that
+    //they do not hold references to the world and causes it to leak.
+    private void cleanAttributes(ChannelHandlerContext ctx)
+    {
+        ctx.channel().attr(FMLOutboundHandler.FML_MESSAGETARGETARGS).remove();
+        ctx.channel().attr(NetworkRegistry.NET_HANDLER).remove();
+        ctx.channel().attr(NetworkDispatcher.FML_DISPATCHER).remove();
+        this.handshakeChannel.attr(FML_DISPATCHER).remove();
+        this.manager.channel().attr(FML_DISPATCHER).remove();
+    }
+
+    public void setOverrideDimension(int overrideDim) {
+        this.overrideLoginDim = overrideDim;
+        FMLLog.fine("Received override dimension %d", overrideDim);
+    }
+
+    public int getOverrideDimension(S01PacketJoinGame p_147282_1_) {
+        FMLLog.fine("Overriding dimension: using %d", this.overrideLoginDim);
+        return this.overrideLoginDim != 0 ? this.overrideLoginDim : p_147282_1_.func_149194_f();
+    }
+}
@@ -0,0 +1,160 @@
+package cpw.mods.fml.common.network.simpleimpl;
+
+import io.netty.channel.Channel;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.Level;
+
+import com.google.common.primitives.Ints;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import cpw.mods.fml.relauncher.Side;
+
+/**
+ * Holds the messages of handlers registered as scheduled with {@link SimpleNetworkWrapper#registerMessage(IMessageHandler, Class, int, Side, boolean)}
+ * in one queue per connection, and runs them at the end of the tick of the receiving side.
+ *
+ * Each tick at most -Dfml.messageTickBudget microseconds (default 5000) are spent handling them, taking one message from
+ * every connection in turn so a single chatty connection can not starve the others. Messages left over wait for the next tick.
+ *
+ * When a connection has more than -Dfml.messageQueueLimit messages waiting (default 1024) reading from it is paused until
+ * half of them are handled. A server side connection that still reaches four times the limit is disconnected.
+ */
+public class MessageScheduler
+{
+    private static final long BUDGET = Math.max(1, parse("fml.messageTickBudget", 5000)) * 1000L;
+    private static final int LIMIT = Math.max(1, parse("fml.messageQueueLimit", 1024));
+    private static final int KICK_LIMIT = LIMIT * 4;
+    private static final Map<NetworkDispatcher, ConnectionQueue> queues = new ConcurrentHashMap<NetworkDispatcher, ConnectionQueue>();
+
+    static void schedule(NetworkDispatcher dispatcher, Side side, Runnable task)
+    {
+        if (dispatcher == null)
+        {
+            task.run();
+            return;
+        }
+        ConnectionQueue queue = queues.get(dispatcher);
+        if (queue == null)
+        {
+            synchronized (queues)
+            {
+                queue = queues.get(dispatcher);
+                if (queue == null)
+                {
+                    queue = new ConnectionQueue(dispatcher, side);
+                    queues.put(dispatcher, queue);
+                }
+            }
+        }
+        queue.add(task);
+    }
+
+    /**
+     * Handles queued messages for the specified side within the tick budget.
+     * Called once per tick by {@link cpw.mods.fml.common.FMLCommonHandler}.
+     */
+    public static void processQueued(Side side)
+    {
+        if (queues.isEmpty())
+        {
+            return;
+        }
+        long deadline = System.nanoTime() + BUDGET;
+        boolean more = true;
+        while (more)
+        {
+            more = false;
+            for (Iterator<ConnectionQueue> it = queues.values().iterator(); it.hasNext();)
+            {
+                ConnectionQueue queue = it.next();
+                if (queue.side != side)
+                {
+                    continue;
+                }
+                if (!queue.channel.isOpen())
+                {
+                    it.remove();
+                    continue;
+                }
+                Runnable task = queue.poll();
+                if (task == null)
+                {
+                    continue;
+                }
+                try
+                {
+                    task.run();
+                }
+                catch (Throwable t)
+                {
+                    FMLLog.log(Level.ERROR, t, "Exception caught handling a scheduled message");
+                }
+                more = true;
+                if (System.nanoTime() >= deadline)
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int parse(String property, int def)
+    {
+        Integer value = Ints.tryParse(System.getProperty(property, String.valueOf(def)));
+        return value == null ? def : value;
+    }
+
+    private static class ConnectionQueue
+    {
+        private final NetworkDispatcher dispatcher;
+        private final Channel channel;
+        private final Side side;
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final AtomicInteger size = new AtomicInteger();
+        private volatile boolean paused = false;
+
+        private ConnectionQueue(NetworkDispatcher dispatcher, Side side)
+        {
+            this.dispatcher = dispatcher;
+            this.channel = dispatcher.manager.channel();
+            this.side = side;
+        }
+
+        private void add(Runnable task)
+        {
+            int count = size.incrementAndGet();
+            if (side == Side.SERVER && count > KICK_LIMIT)
+            {
+                FMLLog.warning("Disconnecting %s, it has more than %d messages waiting to be handled", channel.remoteAddress(), KICK_LIMIT);
+                tasks.clear();
+                size.set(0);
+                dispatcher.rejectHandshake("Too many packets");
+                return;
+            }
+            tasks.add(task);
+            if (count > LIMIT && !paused)
+            {
+                paused = true;
+                channel.config().setAutoRead(false);
+            }
+        }
+
+        private Runnable poll()
+        {
+            Runnable task = tasks.poll();
+            if (task != null && size.decrementAndGet() <= LIMIT / 2 && paused && channel.isOpen())
+            {
+                paused = false;
+                channel.config().setAutoRead(true);
+            }
+            return task;
+        }
+    }
+}
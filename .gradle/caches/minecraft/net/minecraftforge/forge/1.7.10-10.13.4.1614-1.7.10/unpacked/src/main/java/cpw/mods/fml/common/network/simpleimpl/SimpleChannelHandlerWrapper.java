@@ -0,0 +1,101 @@
+package cpw.mods.fml.common.network.simpleimpl;
+
+import org.apache.logging.log4j.Level;
+
+import net.minecraft.network.INetHandler;
+
+import com.google.common.base.Preconditions;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.network.FMLIndexedMessageToMessageCodec;
+import cpw.mods.fml.common.network.FMLOutboundHandler;
+import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+import cpw.mods.fml.relauncher.Side;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+import java.lang.ref.WeakReference;
+
+public class SimpleChannelHandlerWrapper<REQ extends IMessage, REPLY extends IMessage> extends SimpleChannelInboundHandler<REQ> {
+    private final IMessageHandler<? super REQ, ? extends REPLY> messageHandler;
+    private final Side side;
+    private final boolean scheduled;
+    
+    public SimpleChannelHandlerWrapper(Class<? extends IMessageHandler<? super REQ, ? extends REPLY>> handler, Side side, Class<REQ> requestType)
+    {
+        this(SimpleNetworkWrapper.instantiate(handler), side, requestType);
+    }
+    
+    public SimpleChannelHandlerWrapper(IMessageHandler<? super REQ, ? extends REPLY> handler, Side side, Class<REQ> requestType)
+    {
+        this(handler, side, requestType, false);
+    }
+
+    public SimpleChannelHandlerWrapper(IMessageHandler<? super REQ, ? extends REPLY> handler, Side side, Class<REQ> requestType, boolean scheduled)
+    {
+        super(requestType);
+        messageHandler = Preconditions.checkNotNull(handler, "IMessageHandler must not be null");
+        this.side = side;
+        this.scheduled = scheduled;
+    }
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, REQ msg) throws Exception
+    {
+        INetHandler iNetHandler = ctx.channel().attr(NetworkRegistry.NET_HANDLER).get();
+        MessageContext context = new MessageContext(iNetHandler, side);
+        if (scheduled)
+        {
+            schedule(ctx, msg, context);
+            return;
+        }
+        REPLY result = messageHandler.onMessage(msg, context);
+        if (result != null)
+        {
+            ctx.channel().attr(FMLOutboundHandler.FML_MESSAGETARGET).set(FMLOutboundHandler.OutboundTarget.REPLY);
+            ctx.writeAndFlush(result).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
+        }
+    }
+
+    /**
+     * Queues the message for {@link MessageScheduler}. The channel attributes will have moved on by the time it is handled,
+     * so the reply is encoded directly and sent back through the dispatcher the message arrived on.
+     */
+    private void schedule(ChannelHandlerContext ctx, final REQ msg, final MessageContext context)
+    {
+        ChannelHandlerContext codecContext = ctx.pipeline().context(SimpleIndexedCodec.class);
+        final SimpleIndexedCodec codec = (SimpleIndexedCodec) codecContext.handler();
+        final String channelName = ctx.channel().attr(NetworkRegistry.FML_CHANNEL).get();
+        WeakReference<FMLProxyPacket> ref = codecContext.attr(FMLIndexedMessageToMessageCodec.INBOUNDPACKETTRACKER).get().get();
+        FMLProxyPacket inbound = ref == null ? null : ref.get();
+        final NetworkDispatcher dispatcher = inbound == null ? null : inbound.getDispatcher();
+        MessageScheduler.schedule(dispatcher, side, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                REPLY result = messageHandler.onMessage(msg, context);
+                if (result != null && dispatcher != null)
+                {
+                    try
+                    {
+                        dispatcher.sendProxy(codec.toProxy(result, channelName));
+                    }
+                    catch (Exception e)
+                    {
+                        FMLLog.log(Level.ERROR, e, "Unable to encode reply %s on channel %s", result.getClass().getName(), channelName);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception
+    {
+        FMLLog.log(Level.ERROR, cause, "SimpleChannelHandlerWrapper exception");
+        super.exceptionCaught(ctx, cause);
+    }
+}
@@ -0,0 +1,30 @@
+package cpw.mods.fml.common.network.simpleimpl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import cpw.mods.fml.common.network.FMLIndexedMessageToMessageCodec;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+
+public class SimpleIndexedCodec extends FMLIndexedMessageToMessageCodec<IMessage> {
+    @Override
+    public void encodeInto(ChannelHandlerContext ctx, IMessage msg, ByteBuf target) throws Exception
+    {
+        msg.toBytes(target);
+    }
+
+    /**
+     * Encodes a message without going through a channel pipeline, so it can be called from any thread.
+     */
+    FMLProxyPacket toProxy(IMessage msg, String channel) throws Exception
+    {
+        return new FMLProxyPacket(Unpooled.wrappedBuffer(encodePayload(null, msg)), channel);
+    }
+
+    @Override
+    public void decodeInto(ChannelHandlerContext ctx, ByteBuf source, IMessage msg)
+    {
+        msg.fromBytes(source);
+    }
+
+}
@@ -0,0 +1,323 @@
+package cpw.mods.fml.common.network.simpleimpl;
+
+import java.util.EnumMap;
+
+import org.apache.logging.log4j.Level;
+
+import com.google.common.base.Throwables;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.network.INetHandler;
+import net.minecraft.network.Packet;
+import net.minecraft.tileentity.TileEntity;
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.event.FMLPreInitializationEvent;
+import cpw.mods.fml.common.network.FMLEmbeddedChannel;
+import cpw.mods.fml.common.network.FMLNetworkException;
+import cpw.mods.fml.common.network.FMLOutboundHandler;
+import cpw.mods.fml.common.network.NetworkRegistry;
+import cpw.mods.fml.common.network.NetworkRegistry.TargetPoint;
+import cpw.mods.fml.common.network.handshake.NetworkDispatcher;
+import cpw.mods.fml.common.network.internal.FMLProxyPacket;
+import cpw.mods.fml.relauncher.Side;
+
+/**
+ * This class is a simplified netty wrapper for those not wishing to deal with the full power of netty.
+ * It provides a simple message driven system, based on a discriminator byte over the custom packet channel.
+ * It assumes that you have a series of unique message types with each having a unique handler. Generally, context should be
+ * derived at message handling time.
+ *
+ * Usage is simple:<ul>
+ * <li>construct, and store, an instance of this class. It will automatically register and configure your underlying netty channel.
+ *
+ * <li>Then, call {@link #registerMessage(Class, Class, byte, Side)} for each message type you want to exchange
+ * providing an {@link IMessageHandler} implementation class as well as an {@link IMessage} implementation class. The side parameter
+ * to that method indicates which side (server or client) the <em>message processing</em> will occur on. The discriminator byte
+ * should be unique for this channelName - it is used to discriminate between different types of message that might
+ * occur on this channel (a simple form of message channel multiplexing, if you will).
+ * <li>To get a packet suitable for presenting to the rest of minecraft, you can call {@link #getPacketFrom(IMessage)}. The return result
+ * is suitable for returning from things like {@link TileEntity#getDescriptionPacket()} for example.
+ * <li>Finally, use the sendXXX to send unsolicited messages to various classes of recipients. These may be called from any thread.
+ * </ul>
+ *
+ * Example
+ * <code>
+ * <pre>
+ *  // Request message
+ *  public Message1 implements IMessage {
+ *  // message structure
+ *   public fromBytes(ByteBuf buf) {
+ *    // build message from byte array
+ *   }
+ *   public toBytes(ByteBuf buf) {
+ *    // put message content into byte array
+ *   }
+ *  }
+ *  // Reply message
+ *  public Message2 implements IMessage {
+ *   // stuff as before
+ *  }
+ *  // Message1Handler expects input of type Message1 and returns type Message2
+ *  public Message1Handler implements IMessageHandler<Message1,Message2> {
+ *   public Message2 onMessage(Message1 message, MessageContext ctx) {
+ *    // do something and generate reply message
+ *    return aMessage2Object;
+ *   }
+ *  }
+ *  // Message2Handler expects input of type Message2 and returns no message (IMessage)
+ *  public Message2Handler implements IMessageHandler<Message2,IMessage> {
+ *   public IMessage onMessage(Message2 message, MessageContext ctx) {
+ *    // handle the message 2 response message at the other end
+ *    // no reply for this message - return null
+ *    return null;
+ *   }
+ *  }
+ *
+ *  // Code in a {@link FMLPreInitializationEvent} or {@link FMLInitializationEvent} handler
+ *  SimpleNetworkWrapper wrapper = NetworkRegistry.newSimpleChannel("MYCHANNEL");
+ *  // Message1 is handled by the Message1Handler class, it has discriminator id 1 and it's on the client
+ *  wrapper.registerMessage(Message1Handler.class, Message1.class, 1, Side.CLIENT);
+ *  // Message2 is handled by the Message2Handler class, it has discriminator id 2 and it's on the server
+ *  wrapper.registerMessage(Message2Handler.class, Message2.class, 2, Side.SERVER);
+ *  </pre>
+ * </code>
+ *
+ *
+ * @author cpw
+ *
+ */
+public class SimpleNetworkWrapper {
+    private EnumMap<Side, FMLEmbeddedChannel> channels;
+    private SimpleIndexedCodec packetCodec;
+    private final String channelName;
+
+    public SimpleNetworkWrapper(String channelName)
+    {
+        this.channelName = channelName;
+        packetCodec = new SimpleIndexedCodec();
+        channels = NetworkRegistry.INSTANCE.newChannel(channelName, packetCodec);
+    }
+
+    /**
+     * Register a message and it's associated handler. The message will have the supplied discriminator byte. The message handler will
+     * be registered on the supplied side (this is the side where you want the message to be processed and acted upon).
+     *
+     * @param messageHandler the message handler type
+     * @param requestMessageType the message type
+     * @param discriminator a discriminator byte
+     * @param side the side for the handler
+     */
+    public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(Class<? extends IMessageHandler<REQ, REPLY>> messageHandler, Class<REQ> requestMessageType, int discriminator, Side side)
+    {
+        registerMessage(instantiate(messageHandler), requestMessageType, discriminator, side, false);
+    }
+
+    /**
+     * Register a message and it's associated handler, optionally handling it at the end of the tick instead of as soon as the packet is processed.
+     * See {@link #registerMessage(IMessageHandler, Class, int, Side, boolean)}.
+     *
+     * @param messageHandler the message handler type
+     * @param requestMessageType the message type
+     * @param discriminator a discriminator byte
+     * @param side the side for the handler
+     * @param scheduled whether the message is queued for the {@link MessageScheduler}
+     */
+    public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(Class<? extends IMessageHandler<REQ, REPLY>> messageHandler, Class<REQ> requestMessageType, int discriminator, Side side, boolean scheduled)
+    {
+        registerMessage(instantiate(messageHandler), requestMessageType, discriminator, side, scheduled);
+    }
+    
+    static <REQ extends IMessage, REPLY extends IMessage> IMessageHandler<? super REQ, ? extends REPLY> instantiate(Class<? extends IMessageHandler<? super REQ, ? extends REPLY>> handler)
+    {
+        try
+        {
+            return handler.newInstance();
+        } catch (Exception e)
+        {
+            throw Throwables.propagate(e);
+        }
+    }
+    
+    /**
+     * Register a message and it's associated handler. The message will have the supplied discriminator byte. The message handler will
+     * be registered on the supplied side (this is the side where you want the message to be processed and acted upon).
+     *
+     * @param messageHandler the message handler instance
+     * @param requestMessageType the message type
+     * @param discriminator a discriminator byte
+     * @param side the side for the handler
+     */
+    public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestMessageType, int discriminator, Side side)
+    {
+        registerMessage(messageHandler, requestMessageType, discriminator, side, false);
+    }
+
+    /**
+     * Register a message and it's associated handler, optionally handling it at the end of the tick instead of as soon as the packet is processed.
+     *
+     * Scheduled messages wait in a bounded queue per connection and are handled on the tick thread of the supplied side within a per tick
+     * time budget, one connection at a time. A connection sending faster than they are handled has reading paused, and is disconnected
+     * on the server if it keeps flooding. See {@link MessageScheduler} for the limits.
+     *
+     * @param messageHandler the message handler instance
+     * @param requestMessageType the message type
+     * @param discriminator a discriminator byte
+     * @param side the side for the handler
+     * @param scheduled whether the message is queued for the {@link MessageScheduler}
+     */
+    public <REQ extends IMessage, REPLY extends IMessage> void registerMessage(IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestMessageType, int discriminator, Side side, boolean scheduled)
+    {
+        packetCodec.addDiscriminator(discriminator, requestMessageType);
+        FMLEmbeddedChannel channel = channels.get(side);
+        String type = channel.findChannelHandlerNameForType(SimpleIndexedCodec.class);
+        if (side == Side.SERVER)
+        {
+            addServerHandlerAfter(channel, type, messageHandler, requestMessageType, scheduled);
+        }
+        else
+        {
+            addClientHandlerAfter(channel, type, messageHandler, requestMessageType, scheduled);
+        }
+    }
+
+    private <REQ extends IMessage, REPLY extends IMessage, NH extends INetHandler> void addServerHandlerAfter(FMLEmbeddedChannel channel, String type, IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestType, boolean scheduled)
+    {
+        SimpleChannelHandlerWrapper<REQ, REPLY> handler = getHandlerWrapper(messageHandler, Side.SERVER, requestType, scheduled);
+        channel.pipeline().addAfter(type, messageHandler.getClass().getName(), handler);
+    }
+
+    private <REQ extends IMessage, REPLY extends IMessage, NH extends INetHandler> void addClientHandlerAfter(FMLEmbeddedChannel channel, String type, IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Class<REQ> requestType, boolean scheduled)
+    {
+        SimpleChannelHandlerWrapper<REQ, REPLY> handler = getHandlerWrapper(messageHandler, Side.CLIENT, requestType, scheduled);
+        channel.pipeline().addAfter(type, messageHandler.getClass().getName(), handler);
+    }
+
+    private <REPLY extends IMessage, REQ extends IMessage> SimpleChannelHandlerWrapper<REQ, REPLY> getHandlerWrapper(IMessageHandler<? super REQ, ? extends REPLY> messageHandler, Side side, Class<REQ> requestType, boolean scheduled)
+    {
+        return new SimpleChannelHandlerWrapper<REQ, REPLY>(messageHandler, side, requestType, scheduled);
+    }
+
+    /**
+     * Construct a minecraft packet from the supplied message. Can be used where minecraft packets are required, such as
+     * {@link TileEntity#func_145844_m}.
+     *
+     * @param message The message to translate into packet form
+     * @return A minecraft {@link Packet} suitable for use in minecraft APIs
+     */
+    public Packet getPacketFrom(IMessage message)
+    {
+        try
+        {
+            return packetCodec.toProxy(message, channelName);
+        }
+        catch (Exception e)
+        {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    /**
+     * Send this message to everyone.
+     * The {@link IMessageHandler} for this message type should be on the CLIENT side.
+     *
+     * @param message The message to send
+     */
+    public void sendToAll(IMessage message)
+    {
+        send(message, Side.SERVER, FMLOutboundHandler.OutboundTarget.ALL, null);
+    }
+
+    /**
+     * Send this message to the specified player.
+     * The {@link IMessageHandler} for this message type should be on the CLIENT side.
+     *
+     * @param message The message to send
+     * @param player The player to send it to
+     */
+    public void sendTo(IMessage message, EntityPlayerMP player)
+    {
+        send(message, Side.SERVER, FMLOutboundHandler.OutboundTarget.PLAYER, player);
+    }
+
+    /**
+     * Send this message to everyone within a certain range of a point.
+     * The {@link IMessageHandler} for this message type should be on the CLIENT side.
+     *
+     * @param message The message to send
+     * @param point The {@link TargetPoint} around which to send
+     */
+    public void sendToAllAround(IMessage message, NetworkRegistry.TargetPoint point)
+    {
+        send(message, Side.SERVER, FMLOutboundHandler.OutboundTarget.ALLAROUNDPOINT, point);
+    }
+
+    /**
+     * Send this message to everyone that has the supplied chunk loaded.
+     * The {@link IMessageHandler} for this message type should be on the CLIENT side.
+     *
+     * @param message The message to send
+     * @param chunk The {@link TargetChunk} to send to the watchers of
+     */
+    public void sendToAllTracking(IMessage message, NetworkRegistry.TargetChunk chunk)
+    {
+        send(message, Side.SERVER, FMLOutboundHandler.OutboundTarget.TRACKING_CHUNK, chunk);
+    }
+
+    /**
+     * Send this message to everyone within the supplied dimension.
+     * The {@link IMessageHandler} for this message type should be on the CLIENT side.
+     *
+     * @param message The message to send
+     * @param dimensionId The dimension id to target
+     */
+    public void sendToDimension(IMessage message, int dimensionId)
+    {
+        send(message, Side.SERVER, FMLOutboundHandler.OutboundTarget.DIMENSION, dimensionId);
+    }
+
+    /**
+     * Encodes the message once and queues it on the connection of every selected player.
+     * The target travels with the call instead of through channel attributes, so this is safe to call from any thread.
+     * The target is checked against the side of the channel it is sent on, as {@link FMLOutboundHandler} does.
+     */
+    private void send(IMessage message, Side side, FMLOutboundHandler.OutboundTarget target, Object args)
+    {
+        Side channelSide = channels.get(side).attr(NetworkRegistry.CHANNEL_SOURCE).get();
+        if (!target.allowed.contains(channelSide))
+        {
+            if (channelSide != Side.CLIENT)
+            {
+                throw new FMLNetworkException("Packet arrived at the outbound handler without a valid target!");
+            }
+            target = FMLOutboundHandler.OutboundTarget.TOSERVER;
+            args = null;
+        }
+        target.validateArgs(args);
+        FMLProxyPacket pkt;
+        try
+        {
+            pkt = packetCodec.toProxy(message, channelName);
+        }
+        catch (Exception e)
+        {
+            FMLLog.log(Level.ERROR, e, "Unable to encode message %s on channel %s", message.getClass().getName(), channelName);
+            return;
+        }
+        // NetworkManager hands the packet to the connection's event loop when called off it
+        for (NetworkDispatcher dispatcher : target.selectNetworks(args, null, pkt))
+        {
+            dispatcher.sendProxy(pkt);
+        }
+    }
+
+    /**
+     * Send this message to the server.
+     * The {@link IMessageHandler} for this message type should be on the SERVER side.
+     *
+     * @param message The message to send
+     */
+    public void sendToServer(IMessage message)
+    {
+        send(message, Side.CLIENT, FMLOutboundHandler.OutboundTarget.TOSERVER, null);
+    }
+}
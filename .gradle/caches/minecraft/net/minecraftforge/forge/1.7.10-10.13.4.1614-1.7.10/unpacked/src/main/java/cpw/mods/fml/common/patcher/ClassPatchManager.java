@@ -0,0 +1,494 @@
+package cpw.mods.fml.common.patcher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Pack200;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.Level;
+
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+import LZMA.LzmaInputStream;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import cpw.mods.fml.relauncher.FMLRelaunchLog;
+import cpw.mods.fml.relauncher.Side;
+import cpw.mods.fml.repackage.com.nothome.delta.GDiffPatcher;
+
+public class ClassPatchManager {
+    public static final ClassPatchManager INSTANCE = new ClassPatchManager();
+
+    public static final boolean dumpPatched = Boolean.parseBoolean(System.getProperty("fml.dumpPatchedClasses", "false"));
+    public static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("fml.debugClassPatchManager", "false"));
+
+    public static final boolean useCache = !Boolean.parseBoolean(System.getProperty("fml.disablePatchCache", "false"));
+
+    // GDiffPatcher keeps scratch buffers, one per thread lets classes be patched concurrently
+    private final ThreadLocal<GDiffPatcher> patcher = new ThreadLocal<GDiffPatcher>()
+    {
+        @Override
+        protected GDiffPatcher initialValue()
+        {
+            return new GDiffPatcher();
+        }
+    };
+    private ListMultimap<String, ClassPatch> patches;
+
+    // Classes patched by getPatchedResource ahead of being loaded, handed over and dropped when the class is defined
+    private Map<String,byte[]> patchedClasses = new ConcurrentHashMap<String,byte[]>();
+    private File tempDir;
+    // Patched classes from previous launches, for the current patch set
+    private File outputCache;
+    private String patchSetHash;
+    private ClassPatchManager()
+    {
+        if (dumpPatched)
+        {
+            tempDir = Files.createTempDir();
+            FMLRelaunchLog.info("Dumping patched classes to %s",tempDir.getAbsolutePath());
+        }
+    }
+
+
+    public byte[] getPatchedResource(String name, String mappedName, LaunchClassLoader loader) throws IOException
+    {
+        if (patches == null)
+        {
+            return loader.getClassBytes(name);
+        }
+        byte[] ret = patchedClasses.get(name);
+        if (ret != null)
+        {
+            return ret;
+        }
+        byte[] rawClassBytes = loader.getClassBytes(name);
+        ret = patch(name, mappedName, rawClassBytes);
+        if (ret != rawClassBytes)
+        {
+            patchedClasses.put(name, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Patches a class that is about to be defined. The result isn't kept, except in the on disk cache.
+     */
+    public byte[] applyPatch(String name, String mappedName, byte[] inputData)
+    {
+        if (patches == null)
+        {
+            return inputData;
+        }
+        byte[] ret = patchedClasses.remove(name);
+        return ret != null ? ret : patch(name, mappedName, inputData);
+    }
+
+    private byte[] patch(String name, String mappedName, byte[] inputData)
+    {
+        List<ClassPatch> list = patches.get(name);
+        if (list.isEmpty())
+        {
+            return inputData;
+        }
+        int originalChecksum = inputData == null ? 0 : Hashing.adler32().hashBytes(inputData).asInt();
+        File cached = outputCache == null || dumpPatched ? null : new File(outputCache, name + ".class");
+        byte[] cachedData = readCachedOutput(cached, originalChecksum);
+        if (cachedData != null)
+        {
+            return cachedData;
+        }
+        byte[] original = inputData;
+        boolean ignoredError = false;
+        if (DEBUG)
+            FMLRelaunchLog.fine("Runtime patching class %s (input size %d), found %d patch%s", mappedName, (inputData == null ? 0 : inputData.length), list.size(), list.size()!=1 ? "es" : "");
+        for (ClassPatch patch: list)
+        {
+            if (!patch.targetClassName.equals(mappedName) && !patch.sourceClassName.equals(name))
+            {
+                FMLRelaunchLog.warning("Binary patch found %s for wrong class %s", patch.targetClassName, mappedName);
+            }
+            if (!patch.existsAtTarget && (inputData == null || inputData.length == 0))
+            {
+                inputData = new byte[0];
+            }
+            else if (!patch.existsAtTarget)
+            {
+                FMLRelaunchLog.warning("Patcher expecting empty class data file for %s, but received non-empty", patch.targetClassName);
+            }
+            else
+            {
+                int inputChecksum = inputData == original ? originalChecksum : Hashing.adler32().hashBytes(inputData).asInt();
+                if (patch.inputChecksum != inputChecksum)
+                {
+                    FMLRelaunchLog.severe("There is a binary discrepency between the expected input class %s (%s) and the actual class. Checksum on disk is %x, in patch %x. Things are probably about to go very wrong. Did you put something into the jar file?", mappedName, name, inputChecksum, patch.inputChecksum);
+                    if (!Boolean.parseBoolean(System.getProperty("fml.ignorePatchDiscrepancies","false")))
+                    {
+                        FMLRelaunchLog.severe("The game is going to exit, because this is a critical error, and it is very improbable that the modded game will work, please obtain clean jar files.");
+                        System.exit(1);
+                    }
+                    else
+                    {
+                        FMLRelaunchLog.severe("FML is going to ignore this error, note that the patch will not be applied, and there is likely to be a malfunctioning behaviour, including not running at all");
+                        ignoredError = true;
+                        continue;
+                    }
+                }
+            }
+            try
+            {
+                inputData = patcher.get().patch(inputData, patch.patch);
+            }
+            catch (IOException e)
+            {
+                FMLRelaunchLog.log(Level.ERROR, e, "Encountered problem runtime patching class %s", name);
+                ignoredError = true;
+                continue;
+            }
+        }
+        if (!ignoredError && DEBUG)
+        {
+            FMLRelaunchLog.fine("Successfully applied runtime patches for %s (new size %d)", mappedName, inputData.length);
+        }
+        if (dumpPatched)
+        {
+            try
+            {
+                Files.write(inputData, new File(tempDir,mappedName));
+            }
+            catch (IOException e)
+            {
+                FMLRelaunchLog.log(Level.ERROR, e, "Failed to write %s to %s", mappedName, tempDir.getAbsolutePath());
+            }
+        }
+        if (!ignoredError && cached != null)
+        {
+            writeCachedOutput(cached, originalChecksum, inputData);
+        }
+        return inputData;
+    }
+
+    private byte[] readCachedOutput(File file, int inputChecksum)
+    {
+        if (file == null || !file.isFile())
+        {
+            return null;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != inputChecksum)
+            {
+                return null;
+            }
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            return data;
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to read the cached patched class %s", file);
+            return null;
+        }
+        finally
+        {
+            closeQuietly(in);
+        }
+    }
+
+    private void writeCachedOutput(File file, int inputChecksum, byte[] data)
+    {
+        // Write to a temporary file first, so another instance starting at the same time never reads half a class
+        File tmp = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+        DataOutputStream out = null;
+        try
+        {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(inputChecksum);
+            out.writeInt(data.length);
+            out.write(data);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file))
+            {
+                tmp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to cache the patched class %s", file);
+            tmp.delete();
+        }
+        finally
+        {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable)
+    {
+        try
+        {
+            if (closeable != null)
+            {
+                closeable.close();
+            }
+        }
+        catch (IOException e)
+        {
+            // ignored
+        }
+    }
+
+    public void setup(Side side)
+    {
+        setup(side, null);
+    }
+
+    /**
+     * Reads the binary patches for the specified side.
+     *
+     * When a game directory is supplied, the patches unpacked from the Pack200/LZMA archive and the classes patched with them
+     * are cached in fmlcache/binpatches, keyed by the hash of the archive, so later launches skip both steps.
+     */
+    public void setup(Side side, File mcDir)
+    {
+        patches = ArrayListMultimap.create();
+        patchedClasses.clear();
+        outputCache = null;
+        patchSetHash = null;
+        byte[] compressed;
+        try
+        {
+            InputStream binpatchesCompressed = getClass().getResourceAsStream("/binpatches.pack.lzma");
+            if (binpatchesCompressed==null)
+            {
+                FMLRelaunchLog.log(Level.ERROR, "The binary patch set is missing. Either you are in a development environment, or things are not going to work!");
+                patches = null;
+                return;
+            }
+            compressed = ByteStreams.toByteArray(binpatchesCompressed);
+            binpatchesCompressed.close();
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.ERROR, e, "Error occurred reading binary patches. Expect severe problems!");
+            throw Throwables.propagate(e);
+        }
+
+        patchSetHash = Hashing.sha1().hashBytes(compressed).toString();
+        File cacheDir = null;
+        if (useCache && mcDir != null)
+        {
+            cacheDir = new File(mcDir, "fmlcache/binpatches/" + side.toString().toLowerCase(Locale.ENGLISH) + "-" + patchSetHash);
+            if (readCachedPatches(new File(cacheDir, "patches.bin")))
+            {
+                FMLRelaunchLog.fine("Read %d binary patches from %s", patches.size(), cacheDir);
+                enableOutputCache(cacheDir);
+                return;
+            }
+            patches = ArrayListMultimap.create();
+        }
+
+        unpack(side, compressed);
+        if (cacheDir != null)
+        {
+            writeCachedPatches(new File(cacheDir, "patches.bin"));
+            enableOutputCache(cacheDir);
+        }
+    }
+
+    /**
+     * @return the SHA-1 of the binary patch archive read by {@link #setup}, or null if there is none
+     */
+    public String getPatchSetHash()
+    {
+        return patchSetHash;
+    }
+
+    private void enableOutputCache(File cacheDir)
+    {
+        File dir = new File(cacheDir, "classes");
+        if (dir.isDirectory() || dir.mkdirs())
+        {
+            outputCache = dir;
+        }
+    }
+
+    private boolean readCachedPatches(File file)
+    {
+        if (!file.isFile())
+        {
+            return false;
+        }
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String name = in.readUTF();
+                String sourceClassName = in.readUTF();
+                String targetClassName = in.readUTF();
+                boolean exists = in.readBoolean();
+                int inputChecksum = in.readInt();
+                byte[] patchBytes = new byte[in.readInt()];
+                in.readFully(patchBytes);
+                patches.put(sourceClassName, new ClassPatch(name, sourceClassName, targetClassName, exists, inputChecksum, patchBytes));
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to read the cached binary patches %s, unpacking them again", file);
+            return false;
+        }
+        finally
+        {
+            closeQuietly(in);
+        }
+    }
+
+    private void writeCachedPatches(File file)
+    {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try
+        {
+            Files.createParentDirs(file);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(patches.size());
+            for (ClassPatch patch : patches.values())
+            {
+                out.writeUTF(patch.name);
+                out.writeUTF(patch.sourceClassName);
+                out.writeUTF(patch.targetClassName);
+                out.writeBoolean(patch.existsAtTarget);
+                out.writeInt(patch.inputChecksum);
+                out.writeInt(patch.patch.length);
+                out.write(patch.patch);
+            }
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file))
+            {
+                tmp.delete();
+            }
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to cache the binary patches in %s", file);
+            tmp.delete();
+        }
+        finally
+        {
+            closeQuietly(out);
+        }
+    }
+
+    private void unpack(Side side, byte[] compressed)
+    {
+        Pattern binpatchMatcher = Pattern.compile(String.format("binpatch/%s/.*.binpatch", side.toString().toLowerCase(Locale.ENGLISH)));
+        JarInputStream jis;
+        try
+        {
+            LzmaInputStream binpatchesDecompressed = new LzmaInputStream(new ByteArrayInputStream(compressed));
+            ByteArrayOutputStream jarBytes = new ByteArrayOutputStream();
+            JarOutputStream jos = new JarOutputStream(jarBytes);
+            Pack200.newUnpacker().unpack(binpatchesDecompressed, jos);
+            jis = new JarInputStream(new ByteArrayInputStream(jarBytes.toByteArray()));
+        }
+        catch (Exception e)
+        {
+            FMLRelaunchLog.log(Level.ERROR, e, "Error occurred reading binary patches. Expect severe problems!");
+            throw Throwables.propagate(e);
+        }
+
+        do
+        {
+            try
+            {
+                JarEntry entry = jis.getNextJarEntry();
+                if (entry == null)
+                {
+                    break;
+                }
+                if (binpatchMatcher.matcher(entry.getName()).matches())
+                {
+                    ClassPatch cp = readPatch(entry, jis);
+                    if (cp != null)
+                    {
+                        patches.put(cp.sourceClassName, cp);
+                    }
+                }
+                else
+                {
+                    jis.closeEntry();
+                }
+            }
+            catch (IOException e)
+            {
+            }
+        } while (true);
+        FMLRelaunchLog.fine("Read %d binary patches", patches.size());
+        if (DEBUG)
+            FMLRelaunchLog.fine("Patch list :\n\t%s", Joiner.on("\t\n").join(patches.asMap().entrySet()));
+    }
+
+    private ClassPatch readPatch(JarEntry patchEntry, JarInputStream jis)
+    {
+        if (DEBUG)
+            FMLRelaunchLog.finer("Reading patch data from %s", patchEntry.getName());
+        ByteArrayDataInput input;
+        try
+        {
+            input = ByteStreams.newDataInput(ByteStreams.toByteArray(jis));
+        }
+        catch (IOException e)
+        {
+            FMLRelaunchLog.log(Level.WARN, e, "Unable to read binpatch file %s - ignoring", patchEntry.getName());
+            return null;
+        }
+        String name = input.readUTF();
+        String sourceClassName = input.readUTF();
+        String targetClassName = input.readUTF();
+        boolean exists = input.readBoolean();
+        int inputChecksum = 0;
+        if (exists)
+        {
+            inputChecksum = input.readInt();
+        }
+        int patchLength = input.readInt();
+        byte[] patchBytes = new byte[patchLength];
+        input.readFully(patchBytes);
+
+        return new ClassPatch(name, sourceClassName, targetClassName, exists, inputChecksum, patchBytes);
+    }
+}
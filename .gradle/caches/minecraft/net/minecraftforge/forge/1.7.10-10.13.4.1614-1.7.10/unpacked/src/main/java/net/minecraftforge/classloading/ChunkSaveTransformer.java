@@ -0,0 +1,106 @@
+package net.minecraftforge.classloading;
+
+import java.util.ListIterator;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.asm.transformers.ClassNodeTransformer;
+
+/**
+ * Sends the chunk saves of AnvilChunkLoader through {@link net.minecraftforge.common.chunkio.ChunkIOExecutor}'s save queue
+ * instead of vanilla's file I/O thread.
+ * <ul>
+ * <li>saveChunk queues its snapshot with ChunkIOExecutor.queueChunkSave instead of addChunkToPending</li>
+ * <li>loadChunk waits for a queued save of the chunk before reading it</li>
+ * <li>chunkExists also returns true for a queued save</li>
+ * <li>saveExtraData writes every queued save, as vanilla does with its own pending chunks</li>
+ * </ul>
+ * Runs after deobfuscation, so methods have their SRG names, or their MCP names in a development environment.
+ */
+public class ChunkSaveTransformer extends ClassNodeTransformer
+{
+    private static final String LOADER = "net/minecraft/world/chunk/storage/AnvilChunkLoader";
+    private static final String EXECUTOR = "net/minecraftforge/common/chunkio/ChunkIOExecutor";
+    private static final String PENDING_DESC = "(Lnet/minecraft/world/ChunkCoordIntPair;Lnet/minecraft/nbt/NBTTagCompound;)V";
+    private static final String COORDS_DESC = "(Lnet/minecraft/world/World;II)";
+
+    @Override
+    public boolean handles(String name, String transformedName, byte[] bytes)
+    {
+        return "net.minecraft.world.chunk.storage.AnvilChunkLoader".equals(transformedName);
+    }
+
+    @Override
+    public boolean transform(String name, String transformedName, ClassNode classNode)
+    {
+        boolean redirected = false;
+        for (MethodNode m : classNode.methods)
+        {
+            if (is(m, "func_75815_a", "loadChunk", COORDS_DESC + "Lnet/minecraft/world/chunk/Chunk;"))
+            {
+                InsnList head = new InsnList();
+                head.add(new VarInsnNode(Opcodes.ALOAD, 0));
+                head.add(new VarInsnNode(Opcodes.ILOAD, 2));
+                head.add(new VarInsnNode(Opcodes.ILOAD, 3));
+                head.add(new MethodInsnNode(Opcodes.INVOKESTATIC, EXECUTOR, "awaitChunkSave", "(L" + LOADER + ";II)V", false));
+                m.instructions.insert(head);
+            }
+            else if (is(m, "chunkExists", "chunkExists", COORDS_DESC + "Z"))
+            {
+                LabelNode notPending = new LabelNode();
+                InsnList head = new InsnList();
+                head.add(new VarInsnNode(Opcodes.ALOAD, 0));
+                head.add(new VarInsnNode(Opcodes.ILOAD, 2));
+                head.add(new VarInsnNode(Opcodes.ILOAD, 3));
+                head.add(new MethodInsnNode(Opcodes.INVOKESTATIC, EXECUTOR, "isChunkSavePending", "(L" + LOADER + ";II)Z", false));
+                head.add(new JumpInsnNode(Opcodes.IFEQ, notPending));
+                head.add(new InsnNode(Opcodes.ICONST_1));
+                head.add(new InsnNode(Opcodes.IRETURN));
+                head.add(notPending);
+                // Same locals as on entry and an empty stack, so the method's own frames stay valid after it
+                head.add(new FrameNode(Opcodes.F_SAME, 0, null, 0, null));
+                m.instructions.insert(head);
+            }
+            else if (is(m, "func_75818_b", "saveExtraData", "()V"))
+            {
+                m.instructions.insert(new MethodInsnNode(Opcodes.INVOKESTATIC, EXECUTOR, "flushChunkSaves", "()V", false));
+            }
+
+            for (ListIterator<AbstractInsnNode> it = m.instructions.iterator(); it.hasNext(); )
+            {
+                AbstractInsnNode insnNode = it.next();
+                if (insnNode.getType() == AbstractInsnNode.METHOD_INSN)
+                {
+                    MethodInsnNode mi = (MethodInsnNode)insnNode;
+                    if (LOADER.equals(mi.owner) && PENDING_DESC.equals(mi.desc) && ("func_75824_a".equals(mi.name) || "addChunkToPending".equals(mi.name)))
+                    {
+                        // The loader and both arguments are already on the stack
+                        it.set(new MethodInsnNode(Opcodes.INVOKESTATIC, EXECUTOR, "queueChunkSave", "(L" + LOADER + ";" + PENDING_DESC.substring(1), false));
+                        redirected = true;
+                    }
+                }
+            }
+        }
+        if (!redirected)
+        {
+            FMLLog.warning("Could not find addChunkToPending in %s, chunks will be saved by the vanilla file I/O thread", transformedName);
+        }
+        return true;
+    }
+
+    private static boolean is(MethodNode m, String srgName, String mcpName, String desc)
+    {
+        return desc.equals(m.desc) && (srgName.equals(m.name) || mcpName.equals(m.name));
+    }
+}
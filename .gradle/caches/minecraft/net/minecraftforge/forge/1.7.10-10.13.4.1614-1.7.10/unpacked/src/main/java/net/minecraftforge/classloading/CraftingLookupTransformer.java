@@ -0,0 +1,61 @@
+package net.minecraftforge.classloading;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import cpw.mods.fml.common.FMLLog;
+import cpw.mods.fml.common.asm.transformers.ClassNodeTransformer;
+
+/**
+ * Makes CraftingManager.findMatchingRecipe look recipes up through {@link net.minecraftforge.oredict.RecipeIndex} instead of
+ * testing every recipe, unless the index declines the grid, in which case vanilla's code runs as before.
+ *
+ * Runs after deobfuscation, so methods have their SRG names, or their MCP names in a development environment.
+ */
+public class CraftingLookupTransformer extends ClassNodeTransformer
+{
+    private static final String INDEX = "net/minecraftforge/oredict/RecipeIndex";
+    private static final String INVENTORY = "Lnet/minecraft/inventory/InventoryCrafting;";
+    private static final String FIND_DESC = "(" + INVENTORY + "Lnet/minecraft/world/World;)Lnet/minecraft/item/ItemStack;";
+
+    @Override
+    public boolean handles(String name, String transformedName, byte[] bytes)
+    {
+        return "net.minecraft.item.crafting.CraftingManager".equals(transformedName);
+    }
+
+    @Override
+    public boolean transform(String name, String transformedName, ClassNode classNode)
+    {
+        for (MethodNode m : classNode.methods)
+        {
+            if (FIND_DESC.equals(m.desc) && ("func_82787_a".equals(m.name) || "findMatchingRecipe".equals(m.name)))
+            {
+                LabelNode vanilla = new LabelNode();
+                InsnList head = new InsnList();
+                head.add(new VarInsnNode(Opcodes.ALOAD, 1));
+                head.add(new MethodInsnNode(Opcodes.INVOKESTATIC, INDEX, "handles", "(" + INVENTORY + ")Z", false));
+                head.add(new JumpInsnNode(Opcodes.IFEQ, vanilla));
+                head.add(new VarInsnNode(Opcodes.ALOAD, 1));
+                head.add(new VarInsnNode(Opcodes.ALOAD, 2));
+                head.add(new MethodInsnNode(Opcodes.INVOKESTATIC, INDEX, "getCraftingResult", FIND_DESC, false));
+                head.add(new InsnNode(Opcodes.ARETURN));
+                head.add(vanilla);
+                // Nothing is stored or left on the stack by the check, so vanilla code starts from the entry frame
+                head.add(new FrameNode(Opcodes.F_SAME, 0, null, 0, null));
+                m.instructions.insert(head);
+                return true;
+            }
+        }
+        FMLLog.warning("Could not find findMatchingRecipe in %s, crafting will not use the recipe index", transformedName);
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package net.minecraftforge.common.chunkio;
+
+import net.minecraftforge.common.ForgeModContainer;
+import net.minecraftforge.common.util.AsynchronousExecutor;
+
+public class ChunkIOExecutor {
+    static final int BASE_THREADS = 1;
+    static final int PLAYERS_PER_THREAD = 50;
+    // Ticks between recomputing queued chunk priorities and sampling player movement for prefetching
+    static final int REPRIORITIZE_INTERVAL = 20;
+
+    static final AsynchronousExecutor<QueuedChunk, net.minecraft.world.chunk.Chunk, Runnable, RuntimeException> instance = new AsynchronousExecutor<QueuedChunk, net.minecraft.world.chunk.Chunk, Runnable, RuntimeException>(new ChunkIOProvider(), BASE_THREADS);
+    static final ChunkSaveQueue saves = new ChunkSaveQueue();
+    private static final ChunkPrefetcher prefetcher = new ChunkPrefetcher();
+    private static int ticks = 0;
+
+    public static net.minecraft.world.chunk.Chunk syncChunkLoad(net.minecraft.world.World world, net.minecraft.world.chunk.storage.AnvilChunkLoader loader, net.minecraft.world.gen.ChunkProviderServer provider, int x, int z) {
+        long start = System.nanoTime();
+        try {
+            return instance.getSkipQueue(new QueuedChunk(x, z, loader, world, provider));
+        } finally {
+            ChunkIOMetrics.syncWait.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void queueChunkLoad(net.minecraft.world.World world, net.minecraft.world.chunk.storage.AnvilChunkLoader loader, net.minecraft.world.gen.ChunkProviderServer provider, int x, int z, Runnable runnable) {
+        QueuedChunk chunk = new QueuedChunk(x, z, loader, world, provider);
+        chunk.queued = System.nanoTime();
+        instance.add(chunk, runnable);
+    }
+
+    // Abuses the fact that hashCode and equals for QueuedChunk only use world and coords
+    public static void dropQueuedChunkLoad(net.minecraft.world.World world, int x, int z, Runnable runnable) {
+        instance.drop(new QueuedChunk(x, z, null, world, null), runnable);
+    }
+
+    /**
+     * Queues a snapshot of a chunk to be compressed and written to its region file on the chunk save thread.
+     * AnvilChunkLoader.saveChunk is redirected here by {@link net.minecraftforge.classloading.ChunkSaveTransformer}.
+     * The snapshot must be taken, and {@link net.minecraftforge.event.world.ChunkDataEvent.Save} posted, on the main thread before calling this.
+     * Loads of the chunk wait for the write to complete, see {@link ChunkIOProvider#callStage1}.
+     */
+    public static void queueChunkSave(net.minecraft.world.chunk.storage.AnvilChunkLoader loader, int x, int z, net.minecraft.nbt.NBTTagCompound data) {
+        saves.queue(loader, x, z, data);
+    }
+
+    // Called in place of AnvilChunkLoader.addChunkToPending
+    public static void queueChunkSave(net.minecraft.world.chunk.storage.AnvilChunkLoader loader, net.minecraft.world.ChunkCoordIntPair coords, net.minecraft.nbt.NBTTagCompound data) {
+        saves.queue(loader, coords.field_77276_a, coords.field_77275_b, data);
+    }
+
+    /**
+     * Blocks until the latest queued save of the chunk is in its region file. Called by AnvilChunkLoader.loadChunk before it reads the chunk.
+     */
+    public static void awaitChunkSave(net.minecraft.world.chunk.storage.AnvilChunkLoader loader, int x, int z) {
+        long start = System.nanoTime();
+        if (saves.await(loader, x, z)) {
+            ChunkIOMetrics.saveWait.record(System.nanoTime() - start);
+        }
+    }
+
+    // True if the chunk was saved through queueChunkSave but isn't in its region file yet, for chunkExists checks
+    public static boolean isChunkSavePending(net.minecraft.world.chunk.storage.AnvilChunkLoader loader, int x, int z) {
+        return saves.isPending(loader, x, z);
+    }
+
+    /**
+     * Blocks until every queued chunk save is written. Called when the server stops, and by AnvilChunkLoader.saveExtraData when a world is flushed.
+     */
+    public static void flushChunkSaves() {
+        saves.flush();
+    }
+
+    public static void adjustPoolSize(int players) {
+        int size = Math.max(BASE_THREADS, (int) Math.ceil(players / (double) PLAYERS_PER_THREAD));
+        instance.setActiveThreads(size);
+    }
+
+    public static void tick() {
+        if (++ticks % REPRIORITIZE_INTERVAL == 0) {
+            instance.reprioritize();
+            prefetcher.sample(instance);
+        }
+        // Read every tick so changes from the config GUI apply immediately
+        instance.setTickBudget((long) (ForgeModContainer.chunkLoadTickBudget * 1000000.0D));
+        instance.finishActive();
+    }
+}
\ No newline at end of file
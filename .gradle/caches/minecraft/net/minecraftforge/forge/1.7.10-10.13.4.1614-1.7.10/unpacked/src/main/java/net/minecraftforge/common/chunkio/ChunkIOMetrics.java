@@ -0,0 +1,153 @@
+package net.minecraftforge.common.chunkio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings of the asynchronous chunk loader, recorded since the server started or the last {@link #reset()}.
+ * <p>
+ * A high queue latency with low decode times means the pool needs more threads, high decode times mean the disk is slow.
+ * Sync waits are loads the main thread needed immediately and had to do itself. Save waits are loads of chunks that were
+ * saved but not written yet, they are not part of the decode time.
+ */
+public class ChunkIOMetrics {
+    /**
+     * Time from a load being queued until an I/O thread started reading it.
+     */
+    public static final Histogram queueLatency = new Histogram();
+    /**
+     * Time an I/O thread spent reading and decoding a chunk.
+     */
+    public static final Histogram decodeTime = new Histogram();
+    /**
+     * Time the main thread spent blocked in {@link ChunkIOExecutor#syncChunkLoad}.
+     */
+    public static final Histogram syncWait = new Histogram();
+    /**
+     * Time a load waited for an unwritten save of the same chunk to be written before reading it.
+     */
+    public static final Histogram saveWait = new Histogram();
+    private static final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * @return how often a chunk couldn't be read asynchronously and was loaded or generated synchronously instead
+     */
+    public static long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * @return the number of queued chunk loads waiting for an I/O thread
+     */
+    public static int getQueuedLoads() {
+        return ChunkIOExecutor.instance.getQueuedParameters();
+    }
+
+    /**
+     * @return the number of queued chunk loads and prefetches waiting for an I/O thread
+     */
+    public static int getQueueDepth() {
+        return ChunkIOExecutor.instance.getQueueSize();
+    }
+
+    /**
+     * @return the number of read chunks waiting to be finished on the main thread
+     */
+    public static int getFinishQueueDepth() {
+        return ChunkIOExecutor.instance.getFinishedQueueSize();
+    }
+
+    /**
+     * @return the number of read chunks the last tick left for the next one because its budget ran out
+     */
+    public static int getLastCarriedOver() {
+        return ChunkIOExecutor.instance.getLastCarriedOver();
+    }
+
+    /**
+     * @return the number of ticks that ran out of budget before finishing every read chunk
+     */
+    public static long getCarryOverTicks() {
+        return ChunkIOExecutor.instance.getCarryOverTicks();
+    }
+
+    /**
+     * @return the number of chunk saves not yet written to their region file
+     */
+    public static int getPendingSaves() {
+        return ChunkIOExecutor.saves.size();
+    }
+
+    public static void reset() {
+        queueLatency.reset();
+        decodeTime.reset();
+        syncWait.reset();
+        saveWait.reset();
+        fallbacks.set(0);
+    }
+
+    static void recordFallback() {
+        fallbacks.incrementAndGet();
+    }
+
+    /**
+     * Thread safe histogram of durations with fixed buckets, see {@link #BOUNDS}.
+     */
+    public static class Histogram {
+        /**
+         * Exclusive upper bound of each bucket in nanoseconds, the last bucket holds everything longer.
+         */
+        public static final long[] BOUNDS = { 100000L, 500000L, 1000000L, 5000000L, 10000000L, 50000000L, 100000000L, 500000000L, Long.MAX_VALUE };
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            int bucket = 0;
+            while (nanos >= BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            long current = max.get();
+            while (nanos > current && !max.compareAndSet(current, nanos)) {
+                current = max.get();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BOUNDS.length; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            total.set(0);
+            max.set(0);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return total.get();
+        }
+
+        public long getMaxNanos() {
+            return max.get();
+        }
+
+        /**
+         * @return the number of recorded durations in each bucket, indexed like {@link #BOUNDS}
+         */
+        public long[] getBuckets() {
+            long[] ret = new long[BOUNDS.length];
+            for (int i = 0; i < ret.length; i++) {
+                ret[i] = buckets.get(i);
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.minecraftforge.common.chunkio;
+
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraftforge.common.ForgeChunkManager;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.common.util.AsynchronousExecutor;
+import net.minecraftforge.event.world.ChunkDataEvent;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ChunkIOProvider implements AsynchronousExecutor.PrioritizedCallBackProvider<QueuedChunk, net.minecraft.world.chunk.Chunk, Runnable, RuntimeException> {
+    // Chunks held by a forced ticket load before anything else
+    static final int FORCED_PRIORITY = -1;
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    // async stuff
+    public net.minecraft.world.chunk.Chunk callStage1(QueuedChunk queuedChunk) throws RuntimeException {
+        net.minecraft.world.chunk.storage.AnvilChunkLoader loader = queuedChunk.loader;
+        Object[] data = null;
+        long start = System.nanoTime();
+        if (queuedChunk.queued != 0) {
+            ChunkIOMetrics.queueLatency.record(start - queuedChunk.queued);
+        }
+        // Don't read the region file while a newer copy of this chunk is still being written to it
+        if (ChunkIOExecutor.saves.await(loader, queuedChunk.x, queuedChunk.z)) {
+            long written = System.nanoTime();
+            ChunkIOMetrics.saveWait.record(written - start);
+            start = written;
+        }
+        try {
+            data = loader.loadChunk__Async(queuedChunk.world, queuedChunk.x, queuedChunk.z);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (queuedChunk.queued != 0) {
+            // Synchronous loads are already counted as sync waits
+            ChunkIOMetrics.decodeTime.record(System.nanoTime() - start);
+        }
+
+        if (data != null) {
+            queuedChunk.compound = (net.minecraft.nbt.NBTTagCompound) data[1];
+            return (net.minecraft.world.chunk.Chunk) data[0];
+        }
+
+        return null;
+    }
+
+    // sync stuff
+    public void callStage2(QueuedChunk queuedChunk, net.minecraft.world.chunk.Chunk chunk) throws RuntimeException {
+        if(chunk == null) {
+            // If the chunk loading failed just do it synchronously (may generate)
+            ChunkIOMetrics.recordFallback();
+            queuedChunk.provider.originalLoadChunk(queuedChunk.x, queuedChunk.z);
+            return;
+        }
+
+        queuedChunk.loader.loadEntities(queuedChunk.world, queuedChunk.compound.func_74775_l("Level"), chunk);
+        MinecraftForge.EVENT_BUS.post(new ChunkDataEvent.Load(chunk, queuedChunk.compound)); // Don't call ChunkDataEvent.Load async
+        chunk.field_76641_n = queuedChunk.provider.field_73251_h.func_82737_E();
+        queuedChunk.provider.field_73244_f.func_76163_a(ChunkCoordIntPair.func_77272_a(queuedChunk.x, queuedChunk.z), chunk);
+        queuedChunk.provider.field_73245_g.add(chunk);
+        chunk.func_76631_c();
+
+        if (queuedChunk.provider.field_73246_d != null) {
+            queuedChunk.provider.field_73246_d.func_82695_e(queuedChunk.x, queuedChunk.z);
+        }
+
+        chunk.func_76624_a(queuedChunk.provider, queuedChunk.provider, queuedChunk.x, queuedChunk.z);
+    }
+
+    public void callStage3(QueuedChunk queuedChunk, net.minecraft.world.chunk.Chunk chunk, Runnable runnable) throws RuntimeException {
+        runnable.run();
+    }
+
+    public int compare(QueuedChunk a, QueuedChunk b) {
+        return a.priority < b.priority ? -1 : (a.priority == b.priority ? 0 : 1);
+    }
+
+    // sync stuff
+    public void updatePriority(QueuedChunk queuedChunk) {
+        if (ForgeChunkManager.isChunkForced(queuedChunk.world, queuedChunk.x, queuedChunk.z)) {
+            queuedChunk.priority = FORCED_PRIORITY;
+            return;
+        }
+
+        int priority = Integer.MAX_VALUE;
+        for (Object obj : queuedChunk.world.field_73010_i) {
+            EntityPlayer player = (EntityPlayer) obj;
+            int dx = ((int) Math.floor(player.field_70165_t) >> 4) - queuedChunk.x;
+            int dz = ((int) Math.floor(player.field_70161_v) >> 4) - queuedChunk.z;
+            priority = (int) Math.min(priority, (long) dx * dx + (long) dz * dz);
+        }
+        queuedChunk.priority = priority;
+    }
+
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "Chunk I/O Executor Thread-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package net.minecraftforge.common.chunkio;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.storage.RegionFileCache;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.util.AsynchronousExecutor;
+
+/**
+ * Reads region data ahead of moving players, so the chunks they are about to enter are already in the
+ * region file cache and the OS page cache when PlayerManager queues them.
+ * Prefetches run as background work on the chunk I/O pool and never delay a queued chunk load.
+ */
+class ChunkPrefetcher {
+    // Don't prefetch for players moving faster than this many chunks per sample, that's a teleport
+    static final int MAX_SPEED = 8;
+    static final int MAX_PREFETCH_PER_PLAYER = 64;
+    // Skip prefetching while the pool is still behind, stale reads would only delay the ones that matter
+    static final int MAX_QUEUED = 256;
+
+    private final Map<EntityPlayerMP, int[]> lastPositions = new WeakHashMap<EntityPlayerMP, int[]>();
+
+    void sample(AsynchronousExecutor<QueuedChunk, net.minecraft.world.chunk.Chunk, Runnable, RuntimeException> executor) {
+        MinecraftServer server = MinecraftServer.func_71276_C();
+        if (server == null || server.func_71203_ab() == null) {
+            return;
+        }
+        if (executor.getQueueSize() > MAX_QUEUED) {
+            lastPositions.clear();
+            return;
+        }
+        int radius = server.func_71203_ab().func_72395_o();
+
+        for (WorldServer world : DimensionManager.getWorlds()) {
+            File dir = world.getChunkSaveLocation();
+            for (Object obj : world.field_73010_i) {
+                EntityPlayerMP player = (EntityPlayerMP) obj;
+                int x = (int) Math.floor(player.field_70165_t) >> 4;
+                int z = (int) Math.floor(player.field_70161_v) >> 4;
+                int[] last = lastPositions.get(player);
+                lastPositions.put(player, new int[] { x, z, world.field_73011_w.field_76574_g });
+                if (last == null || last[2] != world.field_73011_w.field_76574_g) {
+                    continue;
+                }
+
+                int dx = x - last[0];
+                int dz = z - last[1];
+                if ((dx == 0 && dz == 0) || Math.abs(dx) > MAX_SPEED || Math.abs(dz) > MAX_SPEED) {
+                    continue;
+                }
+
+                // Predict where the player will be after the next sample and read the part of that view area
+                // that isn't covered by the current one, nearest to the predicted position first.
+                int px = x + dx;
+                int pz = z + dz;
+                int queued = 0;
+                for (int ring = 0; ring <= radius && queued < MAX_PREFETCH_PER_PLAYER; ring++) {
+                    for (int cx = px - ring; cx <= px + ring && queued < MAX_PREFETCH_PER_PLAYER; cx++) {
+                        for (int cz = pz - ring; cz <= pz + ring && queued < MAX_PREFETCH_PER_PLAYER; cz++) {
+                            if (Math.max(Math.abs(cx - px), Math.abs(cz - pz)) != ring) {
+                                continue;
+                            }
+                            if (Math.abs(cx - x) <= radius && Math.abs(cz - z) <= radius) {
+                                continue;
+                            }
+                            if (world.field_73059_b.func_73149_a(cx, cz)) {
+                                continue;
+                            }
+                            executor.executeBackground(new Prefetch(dir, cx, cz));
+                            queued++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Prefetch implements Runnable {
+        private final File dir;
+        private final int x;
+        private final int z;
+
+        Prefetch(File dir, int x, int z) {
+            this.dir = dir;
+            this.x = x;
+            this.z = z;
+        }
+
+        public void run() {
+            // Opening the stream reads the chunk's sectors, decompression only happens when it's read
+            DataInputStream stream = RegionFileCache.func_76549_c(dir, x, z);
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException e) {
+                    // Nothing was read, nothing to clean up
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package net.minecraftforge.common.chunkio;
+
+import java.io.DataOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+
+import cpw.mods.fml.common.FMLLog;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.chunk.storage.RegionFileCache;
+
+/**
+ * Compresses and writes chunk snapshots to their region files on a thread of its own.
+ * <p>
+ * Saves are written in the order they were queued. They don't share the chunk I/O pool, where loads and prefetches would
+ * always sort ahead of them, so a steady stream of loads can't hold back a save indefinitely.
+ * <p>
+ * There is at most one entry per chunk coordinate. Saving a chunk again before its previous snapshot was written replaces
+ * that snapshot, and a save arriving while the chunk is being written is written right after by the same thread, so
+ * writes for one chunk never overlap or reorder.
+ */
+class ChunkSaveQueue {
+    private final Map<QueuedChunkSave, QueuedChunkSave> pending = new HashMap<QueuedChunkSave, QueuedChunkSave>();
+    private final ExecutorService executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Chunk I/O Save Thread");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    void queue(net.minecraft.world.chunk.storage.AnvilChunkLoader loader, int x, int z, NBTTagCompound data) {
+        final QueuedChunkSave key = new QueuedChunkSave(loader.field_75825_d, x, z);
+        boolean submit = false;
+        synchronized (pending) {
+            QueuedChunkSave save = pending.get(key);
+            if (save == null) {
+                pending.put(key, save = key);
+                submit = true;
+            }
+            save.data = data;
+        }
+
+        if (submit) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    synchronized (pending) {
+                        // Already written by a load or flush that couldn't wait for us
+                        if (key.writing || pending.get(key) != key) {
+                            return;
+                        }
+                        key.writing = true;
+                    }
+                    drain(key);
+                }
+            });
+        }
+    }
+
+    boolean isPending(net.minecraft.world.chunk.storage.AnvilChunkLoader loader, int x, int z) {
+        synchronized (pending) {
+            return pending.containsKey(new QueuedChunkSave(loader.field_75825_d, x, z));
+        }
+    }
+
+    /**
+     * Blocks until the region file holds the latest saved snapshot of the chunk.
+     * If the write hasn't started yet it is done on the calling thread, so a load never waits for the saves queued ahead of this one.
+     *
+     * @return true if a save of the chunk was pending
+     */
+    boolean await(net.minecraft.world.chunk.storage.AnvilChunkLoader loader, int x, int z) {
+        QueuedChunkSave key = new QueuedChunkSave(loader.field_75825_d, x, z);
+        QueuedChunkSave save;
+        synchronized (pending) {
+            save = pending.get(key);
+            if (save == null) {
+                return false;
+            }
+            if (!save.writing) {
+                save.writing = true;
+            } else {
+                while (pending.get(key) == save) {
+                    waitForWrite();
+                }
+                return true;
+            }
+        }
+        drain(save);
+        return true;
+    }
+
+    /**
+     * Writes every queued snapshot, helping the save thread on the calling thread.
+     */
+    void flush() {
+        while (true) {
+            QueuedChunkSave next = null;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                for (QueuedChunkSave save : pending.values()) {
+                    if (!save.writing) {
+                        save.writing = true;
+                        next = save;
+                        break;
+                    }
+                }
+                if (next == null) {
+                    waitForWrite();
+                }
+            }
+            if (next != null) {
+                drain(next);
+            }
+        }
+    }
+
+    int size() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void drain(QueuedChunkSave save) {
+        while (true) {
+            NBTTagCompound data;
+            synchronized (pending) {
+                data = save.data;
+                save.data = null;
+                if (data == null) {
+                    pending.remove(save);
+                    pending.notifyAll();
+                    return;
+                }
+            }
+
+            try {
+                DataOutputStream stream = RegionFileCache.func_76552_d(save.dir, save.x, save.z);
+                CompressedStreamTools.func_74800_a(data, stream);
+                stream.close();
+            } catch (Exception e) {
+                FMLLog.log(Level.ERROR, e, "Failed to write chunk %d, %d to %s", save.x, save.z, save.dir);
+            }
+        }
+    }
+
+    // Must hold the lock on pending
+    private void waitForWrite() {
+        try {
+            pending.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for chunk saves", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package net.minecraftforge.common.chunkio;
+
+
+class QueuedChunk {
+    final int x;
+    final int z;
+    final net.minecraft.world.chunk.storage.AnvilChunkLoader loader;
+    final net.minecraft.world.World world;
+    final net.minecraft.world.gen.ChunkProviderServer provider;
+    net.minecraft.nbt.NBTTagCompound compound;
+    // Squared chunk distance to the nearest player, lower loads first. See ChunkIOProvider.updatePriority
+    int priority;
+    // System.nanoTime() when queued for an asynchronous load, 0 for synchronous loads
+    long queued;
+
+    public QueuedChunk(int x, int z, net.minecraft.world.chunk.storage.AnvilChunkLoader loader, net.minecraft.world.World world, net.minecraft.world.gen.ChunkProviderServer provider) {
+        this.x = x;
+        this.z = z;
+        this.loader = loader;
+        this.world = world;
+        this.provider = provider;
+    }
+
+    @Override
+    public int hashCode() {
+        return (x * 31 + z * 29) ^ world.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object instanceof QueuedChunk) {
+            QueuedChunk other = (QueuedChunk) object;
+            return x == other.x && z == other.z && world == other.world;
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder();
+        String NEW_LINE = System.getProperty("line.separator");
+
+        result.append(this.getClass().getName() + " {" + NEW_LINE);
+        result.append(" x: " + x + NEW_LINE);
+        result.append(" z: " + z + NEW_LINE);
+        result.append(" loader: " + loader + NEW_LINE );
+        result.append(" world: " + world.func_72912_H().func_76065_j() + NEW_LINE);
+        result.append(" dimension: " + world.field_73011_w.field_76574_g + NEW_LINE);
+        result.append(" provider: " + world.field_73011_w.getClass().getName() + NEW_LINE);
+        result.append("}");
+
+        return result.toString();
+    }
+}
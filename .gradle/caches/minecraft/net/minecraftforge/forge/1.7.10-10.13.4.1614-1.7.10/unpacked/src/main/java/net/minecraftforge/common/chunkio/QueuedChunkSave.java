@@ -0,0 +1,39 @@
+package net.minecraftforge.common.chunkio;
+
+import java.io.File;
+
+class QueuedChunkSave {
+    final File dir;
+    final int x;
+    final int z;
+    // Latest snapshot that still has to be written, null once the writer picked it up
+    net.minecraft.nbt.NBTTagCompound data;
+    // Set while a thread owns writing this coordinate, so writes of the same chunk never overlap
+    boolean writing;
+
+    QueuedChunkSave(File dir, int x, int z) {
+        this.dir = dir;
+        this.x = x;
+        this.z = z;
+    }
+
+    @Override
+    public int hashCode() {
+        return (x * 31 + z * 29) ^ dir.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object instanceof QueuedChunkSave) {
+            QueuedChunkSave other = (QueuedChunkSave) object;
+            return x == other.x && z == other.z && dir.equals(other.dir);
+        }
+
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "QueuedChunkSave{" + dir + ", " + x + ", " + z + "}";
+    }
+}
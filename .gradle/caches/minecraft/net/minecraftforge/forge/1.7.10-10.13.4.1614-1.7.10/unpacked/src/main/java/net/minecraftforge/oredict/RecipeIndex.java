@@ -0,0 +1,425 @@
+package net.minecraftforge.oredict;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.inventory.InventoryCrafting;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.CraftingManager;
+import net.minecraft.item.crafting.IRecipe;
+import net.minecraft.item.crafting.ShapedRecipes;
+import net.minecraft.item.crafting.ShapelessRecipes;
+import net.minecraft.world.World;
+
+/**
+ * Finds the recipe matching a crafting grid without testing every registered recipe.
+ *
+ * Every {@link ShapedOreRecipe}, {@link ShapelessOreRecipe}, {@link ShapedRecipes} and {@link ShapelessRecipes}, but not their subclasses, is indexed
+ * under one of its ingredients, the item ID for a plain stack or the ore ID for an ore dictionary entry, choosing the one
+ * matching the fewest items. Only recipes indexed under an item or ore in the grid, and recipes of any other type, are tested,
+ * in the order of the crafting manager list, so the result is the same as a linear scan.
+ *
+ * The index is rebuilt when the size or the last entry of the recipe list changes, when a recipe it is about to test is no
+ * longer at the same position in the list, and after {@link RecipeSorter#sortCraftManager()}. Mods replacing recipes in
+ * place should still call {@link #invalidate()}, a replaced recipe is only noticed once it is tested.
+ *
+ * {@link CraftingManager#func_82787_a(InventoryCrafting, World)} uses the index through {@link net.minecraftforge.classloading.CraftingLookupTransformer},
+ * unless the system property forge.disableRecipeIndex is true.
+ *
+ * Recent matches are remembered per grid content, and verified to still be in the list at the same position and to match
+ * before they are returned.
+ */
+public class RecipeIndex
+{
+    private static final boolean DISABLED = Boolean.parseBoolean(System.getProperty("forge.disableRecipeIndex", "false"));
+    private static final int CACHE_SIZE = 256;
+    private static final int NONE = -1;
+    private static final int STALE = -2;
+    private static volatile Index index;
+    private static final Map<GridKey, IRecipe> recent = new LinkedHashMap<GridKey, IRecipe>(CACHE_SIZE, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<GridKey, IRecipe> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Returns the first recipe in the crafting manager list matching the grid, or null if there is none.
+     * Unlike {@link CraftingManager#func_82787_a(InventoryCrafting, World)} this does not handle repairing two damaged tools.
+     */
+    public static IRecipe findMatchingRecipe(InventoryCrafting inv, World world)
+    {
+        List<?> recipes = CraftingManager.func_77594_a().func_77592_b();
+        Index current = index;
+        if (current == null || !current.isCurrent(recipes))
+        {
+            current = rebuild(recipes, current);
+        }
+
+        GridKey key = new GridKey(inv);
+        IRecipe cached;
+        synchronized (recent)
+        {
+            cached = recent.get(key);
+        }
+        if (cached != null && current.isListed(cached, recipes) && cached.func_77569_a(inv, world))
+        {
+            return cached;
+        }
+
+        int found;
+        while ((found = current.find(inv, world, recipes)) == STALE)
+        {
+            current = rebuild(recipes, current);
+        }
+        IRecipe ret = found == NONE ? null : current.recipes[found];
+        if (ret != null)
+        {
+            synchronized (recent)
+            {
+                recent.put(key, ret);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Whether {@link CraftingManager#func_82787_a(InventoryCrafting, World)} should use {@link #getCraftingResult} for the grid.
+     * False when the index is disabled, and for two damaged tools of the same kind, which vanilla repairs itself.
+     */
+    public static boolean handles(InventoryCrafting inv)
+    {
+        if (DISABLED)
+        {
+            return false;
+        }
+        ItemStack first = null;
+        ItemStack second = null;
+        for (int slot = 0; slot < inv.func_70302_i_(); slot++)
+        {
+            ItemStack stack = inv.func_70301_a(slot);
+            if (stack == null)
+            {
+                continue;
+            }
+            if (first == null)
+            {
+                first = stack;
+            }
+            else if (second == null)
+            {
+                second = stack;
+            }
+            else
+            {
+                return true;
+            }
+        }
+        return second == null || first.func_77973_b() != second.func_77973_b() || first.field_77994_a != 1 || second.field_77994_a != 1
+                || !first.func_77973_b().isRepairable();
+    }
+
+    /**
+     * The result of crafting the grid with the first matching recipe, or null if there is none.
+     * Called in place of the recipe scan of {@link CraftingManager#func_82787_a(InventoryCrafting, World)}.
+     */
+    public static ItemStack getCraftingResult(InventoryCrafting inv, World world)
+    {
+        IRecipe recipe = findMatchingRecipe(inv, world);
+        return recipe == null ? null : recipe.func_77572_b(inv);
+    }
+
+    /**
+     * Drops the index and all remembered matches. Called when the recipe list is sorted.
+     */
+    public static void invalidate()
+    {
+        index = null;
+        synchronized (recent)
+        {
+            recent.clear();
+        }
+    }
+
+    /**
+     * Builds a new index unless another thread already replaced the stale one with an index of the current list.
+     */
+    private static synchronized Index rebuild(List<?> recipes, Index stale)
+    {
+        Index current = index;
+        if (current == null || current == stale || !current.isCurrent(recipes))
+        {
+            synchronized (recent)
+            {
+                recent.clear();
+            }
+            current = new Index(recipes.toArray(new Object[recipes.size()]));
+            index = current;
+        }
+        return current;
+    }
+
+    private static class Index
+    {
+        private final int size;
+        private final IRecipe[] recipes;
+        private final IdentityHashMap<IRecipe, Integer> positions = new IdentityHashMap<IRecipe, Integer>();
+        private final TIntObjectHashMap<int[]> byItem = new TIntObjectHashMap<int[]>();
+        private final TIntObjectHashMap<int[]> byOre = new TIntObjectHashMap<int[]>();
+        private final int[] unindexed;
+
+        private Index(Object[] list)
+        {
+            size = list.length;
+            recipes = new IRecipe[list.length];
+            IdentityHashMap<List<?>, Integer> oreIds = new IdentityHashMap<List<?>, Integer>();
+            for (String name : OreDictionary.getOreNames())
+            {
+                oreIds.put(OreDictionary.getOres(name, false), OreDictionary.getOreID(name));
+            }
+
+            TIntObjectHashMap<TIntArrayList> items = new TIntObjectHashMap<TIntArrayList>();
+            TIntObjectHashMap<TIntArrayList> ores = new TIntObjectHashMap<TIntArrayList>();
+            TIntArrayList other = new TIntArrayList();
+            for (int x = 0; x < list.length; x++)
+            {
+                IRecipe recipe = (IRecipe)list[x];
+                recipes[x] = recipe;
+                if (!positions.containsKey(recipe))
+                {
+                    positions.put(recipe, x);
+                }
+
+                Object key = selectKey(inputs(recipe), oreIds);
+                if (key instanceof ItemStack)
+                {
+                    add(items, Item.func_150891_b(((ItemStack)key).func_77973_b()), x);
+                }
+                else if (key instanceof Integer)
+                {
+                    add(ores, (Integer)key, x);
+                }
+                else
+                {
+                    other.add(x);
+                }
+            }
+            bake(items, byItem);
+            bake(ores, byOre);
+            unindexed = other.toArray();
+        }
+
+        /**
+         * Cheap check that the list wasn't grown, shrunk or appended to after a removal since the index was built.
+         */
+        private boolean isCurrent(List<?> list)
+        {
+            return size == list.size() && (size == 0 || list.get(size - 1) == recipes[size - 1]);
+        }
+
+        private boolean isListed(IRecipe recipe, List<?> list)
+        {
+            Integer position = positions.get(recipe);
+            return position != null && list.get(position) == recipe;
+        }
+
+        /**
+         * @return the position of the first matching recipe, {@link #NONE}, or {@link #STALE} if a recipe about to be tested
+         *         isn't at the same position in the list anymore
+         */
+        private int find(InventoryCrafting inv, World world, List<?> list)
+        {
+            TIntArrayList candidates = new TIntArrayList(unindexed);
+            int[] oreBuffer = new int[16];
+            for (int slot = 0; slot < inv.func_70302_i_(); slot++)
+            {
+                ItemStack stack = inv.func_70301_a(slot);
+                if (stack == null || stack.func_77973_b() == null)
+                {
+                    continue;
+                }
+                int[] found = byItem.get(Item.func_150891_b(stack.func_77973_b()));
+                if (found != null)
+                {
+                    candidates.add(found);
+                }
+                if (!byOre.isEmpty())
+                {
+                    int count = OreDictionary.getOreIDs(stack, oreBuffer);
+                    if (count > oreBuffer.length)
+                    {
+                        oreBuffer = new int[count];
+                        count = OreDictionary.getOreIDs(stack, oreBuffer);
+                    }
+                    for (int x = 0; x < count; x++)
+                    {
+                        found = byOre.get(oreBuffer[x]);
+                        if (found != null)
+                        {
+                            candidates.add(found);
+                        }
+                    }
+                }
+            }
+
+            candidates.sort();
+            int last = -1;
+            for (int x = 0; x < candidates.size(); x++)
+            {
+                int idx = candidates.get(x);
+                if (idx == last)
+                {
+                    continue;
+                }
+                last = idx;
+                if (list.get(idx) != recipes[idx])
+                {
+                    return STALE;
+                }
+                if (recipes[idx].func_77569_a(inv, world))
+                {
+                    return idx;
+                }
+            }
+            return NONE;
+        }
+
+        private static void add(TIntObjectHashMap<TIntArrayList> map, int key, int recipe)
+        {
+            TIntArrayList list = map.get(key);
+            if (list == null)
+            {
+                list = new TIntArrayList();
+                map.put(key, list);
+            }
+            list.add(recipe);
+        }
+
+        private static void bake(TIntObjectHashMap<TIntArrayList> from, TIntObjectHashMap<int[]> to)
+        {
+            for (int key : from.keys())
+            {
+                to.put(key, from.get(key).toArray());
+            }
+        }
+    }
+
+    /**
+     * The ingredients of the recipe, null entries for empty slots, or null if the recipe type isn't indexed.
+     */
+    private static Object[] inputs(IRecipe recipe)
+    {
+        // Only the exact classes, a subclass may override matches() to accept more than its inputs
+        Class<?> cls = recipe.getClass();
+        if (cls == ShapedOreRecipe.class)
+        {
+            return ((ShapedOreRecipe)recipe).getInput();
+        }
+        if (cls == ShapelessOreRecipe.class)
+        {
+            return ((ShapelessOreRecipe)recipe).getInput().toArray();
+        }
+        if (cls == ShapedRecipes.class)
+        {
+            return ((ShapedRecipes)recipe).field_77574_d;
+        }
+        if (cls == ShapelessRecipes.class)
+        {
+            return ((ShapelessRecipes)recipe).field_77579_b.toArray();
+        }
+        return null;
+    }
+
+    /**
+     * Picks the ingredient matching the fewest items: an ItemStack for a plain ingredient, the ore ID for an ore dictionary
+     * list, or null if the recipe has no ingredients or one that can't be indexed.
+     */
+    private static Object selectKey(Object[] inputs, IdentityHashMap<List<?>, Integer> oreIds)
+    {
+        if (inputs == null)
+        {
+            return null;
+        }
+        Object best = null;
+        int bestCount = Integer.MAX_VALUE;
+        for (Object input : inputs)
+        {
+            if (input instanceof ItemStack)
+            {
+                if (((ItemStack)input).func_77973_b() == null)
+                {
+                    return null;
+                }
+                if (bestCount > 1)
+                {
+                    best = input;
+                    bestCount = 1;
+                }
+            }
+            else if (input instanceof List)
+            {
+                Integer ore = oreIds.get(input);
+                if (ore == null)
+                {
+                    return null;
+                }
+                int count = ((List<?>)input).size();
+                if (count < bestCount)
+                {
+                    best = ore;
+                    bestCount = count;
+                }
+            }
+            else if (input != null)
+            {
+                return null;
+            }
+        }
+        return best;
+    }
+
+    private static class GridKey
+    {
+        private final int[] slots;
+        private final int hash;
+
+        private GridKey(InventoryCrafting inv)
+        {
+            slots = new int[inv.func_70302_i_() * 3];
+            for (int x = 0; x < inv.func_70302_i_(); x++)
+            {
+                ItemStack stack = inv.func_70301_a(x);
+                if (stack != null && stack.func_77973_b() != null)
+                {
+                    slots[x * 3] = Item.func_150891_b(stack.func_77973_b()) + 1;
+                    slots[x * 3 + 1] = stack.func_77960_j();
+                    slots[x * 3 + 2] = stack.func_77942_o() ? stack.func_77978_p().hashCode() : 0;
+                }
+            }
+            hash = Arrays.hashCode(slots);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof GridKey && Arrays.equals(slots, ((GridKey)obj).slots);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package net.minecraftforge.server.command;
+
+import java.lang.ref.WeakReference;
+import java.text.DecimalFormat;
+import java.util.List;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ChatComponentTranslation;
+import net.minecraftforge.common.DimensionManager;
+import net.minecraftforge.common.chunkio.ChunkIOMetrics;
+import net.minecraftforge.server.ForgeTimeTracker;
+import cpw.mods.fml.common.eventhandler.EventProfiler;
+
+public class ForgeCommand extends CommandBase {
+
+    private static final DecimalFormat timeFormatter = new DecimalFormat("########0.000");
+    private WeakReference<MinecraftServer> server;
+
+    public ForgeCommand(MinecraftServer server)
+    {
+        this.server = new WeakReference(server);
+    }
+
+    @Override
+    public String func_71517_b()
+    {
+        return "forge";
+    }
+
+    @Override
+    public String func_71518_a(ICommandSender icommandsender)
+    {
+        return "commands.forge.usage";
+    }
+
+    @Override
+    public int func_82362_a()
+    {
+        return 2;
+    }
+    @Override
+    public void func_71515_b(ICommandSender sender, String[] args)
+    {
+        if (args.length == 0)
+        {
+            throw new WrongUsageException("commands.forge.usage");
+        }
+        else if ("help".equals(args[0]))
+        {
+            throw new WrongUsageException("commands.forge.usage");
+        }
+        else if ("tps".equals(args[0]))
+        {
+            displayTPS(sender,args);
+        }
+        else if ("tpslog".equals(args[0]))
+        {
+            doTPSLog(sender,args);
+        }
+        else if ("track".equals(args[0]))
+        {
+            handleTracking(sender, args);
+        }
+        else if ("events".equals(args[0]))
+        {
+            handleEventProfiling(sender, args);
+        }
+        else if ("chunkio".equals(args[0]))
+        {
+            handleChunkIO(sender, args);
+        }
+        else
+        {
+            throw new WrongUsageException("commands.forge.usage");
+        }
+    }
+
+    private void handleTracking(ICommandSender sender, String[] args)
+    {
+        if (args.length != 3)
+        {
+            throw new WrongUsageException("commands.forge.usage.tracking");
+        }
+        String type = args[1];
+        int duration = func_71532_a(sender, args[2], 1, 60);
+
+        if ("te".equals(type))
+        {
+            doTurnOnTileEntityTracking(sender, duration);
+        }
+        else
+        {
+            throw new WrongUsageException("commands.forge.usage.tracking");
+        }
+    }
+
+    private void doTurnOnTileEntityTracking(ICommandSender sender, int duration)
+    {
+        ForgeTimeTracker.tileEntityTrackingDuration = duration;
+        ForgeTimeTracker.tileEntityTracking = true;
+        sender.func_145747_a(new ChatComponentTranslation("commands.forge.tracking.te.enabled", duration));
+    }
+
+    private void handleEventProfiling(ICommandSender sender, String[] args)
+    {
+        if (args.length < 2)
+        {
+            throw new WrongUsageException("commands.forge.usage.events");
+        }
+        String action = args[1];
+
+        if ("start".equals(action))
+        {
+            EventProfiler.setEnabled(true);
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.events.started"));
+        }
+        else if ("stop".equals(action))
+        {
+            EventProfiler.setEnabled(false);
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.events.stopped"));
+        }
+        else if ("reset".equals(action))
+        {
+            EventProfiler.reset();
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.events.reset"));
+        }
+        else if ("top".equals(action))
+        {
+            int count = args.length > 2 ? func_71532_a(sender, args[2], 1, 100) : 10;
+            displayEventTimings(sender, count);
+        }
+        else
+        {
+            throw new WrongUsageException("commands.forge.usage.events");
+        }
+    }
+
+    private void displayEventTimings(ICommandSender sender, int count)
+    {
+        List<EventProfiler.Snapshot> timings = EventProfiler.snapshot();
+        if (timings.isEmpty())
+        {
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.events.empty"));
+            return;
+        }
+        for (EventProfiler.Snapshot entry : timings.subList(0, Math.min(count, timings.size())))
+        {
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.events.entry",
+                    entry.owner == null ? "?" : entry.owner.getModId(), entry.listener, entry.calls,
+                    timeFormatter.format(entry.totalNanos * 1.0E-6D), timeFormatter.format(entry.maxNanos * 1.0E-6D),
+                    entry.allocatedBytes / 1024));
+        }
+    }
+
+    private void handleChunkIO(ICommandSender sender, String[] args)
+    {
+        if (args.length == 1)
+        {
+            displayChunkIOMetrics(sender);
+        }
+        else if (args.length == 2 && "reset".equals(args[1]))
+        {
+            ChunkIOMetrics.reset();
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.chunkio.reset"));
+        }
+        else
+        {
+            throw new WrongUsageException("commands.forge.usage.chunkio");
+        }
+    }
+
+    private void displayChunkIOMetrics(ICommandSender sender)
+    {
+        sender.func_145747_a(new ChatComponentTranslation("commands.forge.chunkio.queues", ChunkIOMetrics.getQueuedLoads(),
+                ChunkIOMetrics.getQueueDepth(), ChunkIOMetrics.getFinishQueueDepth(), ChunkIOMetrics.getPendingSaves()));
+        sender.func_145747_a(new ChatComponentTranslation("commands.forge.chunkio.carryover", ChunkIOMetrics.getLastCarriedOver(),
+                ChunkIOMetrics.getCarryOverTicks(), ChunkIOMetrics.getFallbacks()));
+        displayHistogram(sender, "commands.forge.chunkio.queueLatency", ChunkIOMetrics.queueLatency);
+        displayHistogram(sender, "commands.forge.chunkio.decodeTime", ChunkIOMetrics.decodeTime);
+        displayHistogram(sender, "commands.forge.chunkio.syncWait", ChunkIOMetrics.syncWait);
+        displayHistogram(sender, "commands.forge.chunkio.saveWait", ChunkIOMetrics.saveWait);
+    }
+
+    private void displayHistogram(ICommandSender sender, String name, ChunkIOMetrics.Histogram histogram)
+    {
+        long count = histogram.getCount();
+        double mean = count == 0 ? 0 : histogram.getTotalNanos() * 1.0E-6D / count;
+        sender.func_145747_a(new ChatComponentTranslation("commands.forge.chunkio.histogram", new ChatComponentTranslation(name), count,
+                timeFormatter.format(mean), timeFormatter.format(histogram.getMaxNanos() * 1.0E-6D)));
+        if (count == 0)
+        {
+            return;
+        }
+
+        long[] buckets = histogram.getBuckets();
+        long[] bounds = ChunkIOMetrics.Histogram.BOUNDS;
+        for (int i = 0; i < buckets.length; i++)
+        {
+            if (buckets[i] == 0)
+            {
+                continue;
+            }
+            String bound = i < bounds.length - 1 ? "< " + bounds[i] / 1.0E6D : ">= " + bounds[i - 1] / 1.0E6D;
+            StringBuilder bar = new StringBuilder();
+            for (int x = 0; x < (int) Math.ceil(buckets[i] * 20.0D / count); x++)
+            {
+                bar.append('|');
+            }
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.chunkio.bucket", bound, buckets[i], bar.toString()));
+        }
+    }
+
+    private void doTPSLog(ICommandSender sender, String[] args)
+    {
+
+    }
+
+    private void displayTPS(ICommandSender sender, String[] args)
+    {
+        int dim = 0;
+        boolean summary = true;
+        if (args.length > 1)
+        {
+            dim = func_71526_a(sender, args[1]);
+            summary = false;
+        }
+        if (summary)
+        {
+            for (Integer dimId : DimensionManager.getIDs())
+            {
+                double worldTickTime = ForgeCommand.mean(this.getServer().worldTickTimes.get(dimId)) * 1.0E-6D;
+                double worldTPS = Math.min(1000.0/worldTickTime, 20);
+                sender.func_145747_a(new ChatComponentTranslation("commands.forge.tps.summary",String.format("Dim %d", dimId), timeFormatter.format(worldTickTime), timeFormatter.format(worldTPS)));
+            }
+            double meanTickTime = ForgeCommand.mean(this.getServer().field_71311_j) * 1.0E-6D;
+            double meanTPS = Math.min(1000.0/meanTickTime, 20);
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.tps.summary","Overall", timeFormatter.format(meanTickTime), timeFormatter.format(meanTPS)));
+        }
+        else
+        {
+            double worldTickTime = ForgeCommand.mean(this.getServer().worldTickTimes.get(dim)) * 1.0E-6D;
+            double worldTPS = Math.min(1000.0/worldTickTime, 20);
+            sender.func_145747_a(new ChatComponentTranslation("commands.forge.tps.summary",String.format("Dim %d", dim), timeFormatter.format(worldTickTime), timeFormatter.format(worldTPS)));
+        }
+    }
+
+    private static long mean(long[] values)
+    {
+        long sum = 0l;
+        for (long v : values)
+        {
+            sum+=v;
+        }
+
+        return sum / values.length;
+    }
+
+    private MinecraftServer getServer()
+    {
+        return this.server.get();
+    }
+}